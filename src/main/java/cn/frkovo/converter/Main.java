@@ -2,7 +2,12 @@ package cn.frkovo.converter;
 
 import cn.frkovo.converter.converter.ChartConverter;
 import cn.frkovo.converter.converter.ArenaConverter;
+import cn.frkovo.converter.converter.ConversionOptions;
 import cn.frkovo.converter.converter.ResourcePackConverter;
+import cn.frkovo.converter.mapper.EffectMapperRegistry;
+import cn.frkovo.converter.reader.RmczFormat;
+import cn.frkovo.converter.util.ConversionCache;
+import cn.frkovo.converter.util.SongIdRegistry;
 import cn.frkovo.converter.util.UUIDResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,8 +17,16 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 /**
@@ -23,22 +36,27 @@ import java.util.stream.Stream;
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
     
+    // Converter version; changing it invalidates the incremental conversion cache
+    public static final String VERSION = "1.3";
+    
     // Configuration
     private static final String INPUT_DIR = "ToConvert";
     private static final String OUTPUT_DIR = "Converted";
     private static final String PLAYERDATA_DIR = "playerdata";
     private static final int START_SONG_ID = 10001;
     private static final int START_ARENA_ID = 10000;
+    private static final ConversionOptions options = ConversionOptions.fromSystemProperties();
     
     // Singleton state
-    private static int currentSongId = START_SONG_ID;
     private static UUIDResolver uuidResolver;
+    private static ConversionCache cache;
+    private static SongIdRegistry songIdRegistry;
     
     // SHA to songId mapping for resource pack conversion
-    private static final Map<String, Integer> shaToSongIdMap = new HashMap<>();
+    private static final Map<String, Integer> shaToSongIdMap = new ConcurrentHashMap<>();
     
     public static void main(String[] args) {
-        logger.info("=== RhythMC Chart Converter v1.0 ===");
+        logger.info("=== RhythMC Chart Converter v{} ===", VERSION);
         logger.info("Converting charts from {} to {}", INPUT_DIR, OUTPUT_DIR);
         
         try {
@@ -48,14 +66,20 @@ public class Main {
             // Create output directories
             createOutputDirectories();
             
+            // Load fingerprints of the previous run and the journal of an interrupted one
+            initCache();
+            
             // Convert charts
             convertCharts();
+            cache.save();
             
             // Convert arenas
             convertArenas();
+            cache.save();
             
             // Convert resource packs
             convertResourcePacks();
+            cache.finish();
             
             logger.info("=== Conversion Complete ===");
         } catch (Exception e) {
@@ -74,6 +98,17 @@ public class Main {
         return uuidResolver;
     }
     
+    private static void initCache() throws IOException {
+        // The journal is always replayed; the manifest only skips work when incremental
+        cache = ConversionCache.load(
+            Paths.get(OUTPUT_DIR, ".conversion-cache.json"),
+            Paths.get(OUTPUT_DIR, ".conversion-journal"),
+            VERSION,
+            options.isIncremental()
+        );
+        songIdRegistry = SongIdRegistry.load(Paths.get(OUTPUT_DIR, "song-ids.json"), START_SONG_ID);
+    }
+    
     private static void createOutputDirectories() throws IOException {
         Path chartsOutput = Paths.get(OUTPUT_DIR, "Charts");
         Path arenasOutput = Paths.get(OUTPUT_DIR, "Arenas");
@@ -92,29 +127,89 @@ public class Main {
             return;
         }
         
-        ChartConverter chartConverter = new ChartConverter();
+        ChartConverter chartConverter = new ChartConverter(options, cache);
+        
+        // Readers of .rmcz need the dictionary the charts were deflated with
+        if (options.getDictionary() != null) {
+            Files.copy(options.getDictionary(), Paths.get(OUTPUT_DIR, "Charts", RmczFormat.DICTIONARY_FILE),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
         
-        try (Stream<Path> chartFolders = Files.list(chartsInput)) {
-            chartFolders
+        // Sort SHA folders so new song IDs don't depend on Files.list order
+        List<Path> chartFolders;
+        try (Stream<Path> folders = Files.list(chartsInput)) {
+            chartFolders = folders
                 .filter(Files::isDirectory)
-                .forEach(folder -> {
-                    try {
-                        String sha = folder.getFileName().toString();
-                        logger.info("Converting chart: {}", sha);
-                        boolean success = chartConverter.convert(folder.toFile(), currentSongId);
-                        
-                        if (success) {
-                            // Record SHA to songId mapping for resource pack conversion
-                            shaToSongIdMap.put(sha, currentSongId);
-                            currentSongId++;
-                        }
-                    } catch (Exception e) {
-                        logger.error("Failed to convert chart: {}", folder.getFileName(), e);
-                    }
-                });
+                .sorted(Comparator.comparing(folder -> folder.getFileName().toString()))
+                .toList();
+        }
+        
+        // Assign song IDs up front so workers can run in any order; known charts keep theirs.
+        // The early save keeps the IDs of charts written before a crash; failed new charts are released below
+        Map<Path, Integer> songIds = new LinkedHashMap<>();
+        for (Path folder : chartFolders) {
+            if (chartConverter.isConvertible(folder.toFile())) {
+                songIds.put(folder, songIdRegistry.assign(folder.getFileName().toString()));
+            }
         }
+        songIdRegistry.save();
         
-        logger.info("Converted {} charts", currentSongId - START_SONG_ID);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        songIds.forEach((folder, songId) -> tasks.add(() -> {
+            try {
+                String sha = folder.getFileName().toString();
+                logger.info("Converting chart: {} -> {}", sha, songId);
+                boolean success = chartConverter.convert(folder.toFile(), songId);
+                
+                if (success) {
+                    // Record SHA to songId mapping for resource pack conversion
+                    shaToSongIdMap.put(sha, songId);
+                } else {
+                    releaseSongId(sha, songId);
+                }
+            } catch (Exception e) {
+                logger.error("Failed to convert chart: {}", folder.getFileName(), e);
+                releaseSongId(folder.getFileName().toString(), songId);
+            }
+            return null;
+        }));
+        
+        logger.info("Converting {} charts with {} worker(s)", tasks.size(), options.getChartWorkers());
+        ExecutorService pool = Executors.newFixedThreadPool(options.getChartWorkers());
+        try {
+            pool.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Chart conversion interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        // Saved again without the IDs released by failed charts
+        songIdRegistry.save();
+        
+        logger.info("Converted {} charts", shaToSongIdMap.size());
+        EffectMapperRegistry.getDefault().logUnknownTypes();
+    }
+    
+    /**
+     * Release the song ID of a failed new chart and delete whatever was written for it,
+     * so a later chart given the same ID doesn't start with stale files.
+     */
+    private static void releaseSongId(String sha, int songId) {
+        if (!songIdRegistry.release(sha)) {
+            return;
+        }
+        Path chartOutput = Paths.get(OUTPUT_DIR, "Charts", String.valueOf(songId));
+        if (!Files.exists(chartOutput)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(chartOutput)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to delete output of released song ID {}: {}", songId, chartOutput, e);
+        }
     }
     
     private static void convertArenas() throws IOException {
@@ -126,7 +221,7 @@ public class Main {
             return;
         }
         
-        ArenaConverter arenaConverter = new ArenaConverter(schematicsInput.toFile(), START_ARENA_ID);
+        ArenaConverter arenaConverter = new ArenaConverter(schematicsInput.toFile(), START_ARENA_ID, cache);
         
         try (Stream<Path> arenaFiles = Files.list(arenasInput)) {
             arenaFiles
@@ -161,7 +256,7 @@ public class Main {
         Path resourcePackOutput = Paths.get(OUTPUT_DIR);
         Files.createDirectories(resourcePackOutput);
 
-        ResourcePackConverter resourcePackConverter = new ResourcePackConverter(shaToSongIdMap);
+        ResourcePackConverter resourcePackConverter = new ResourcePackConverter(shaToSongIdMap, options, cache);
         
         try {
             Path outputZip = resourcePackConverter.convert(rmcBDir, resourcePackOutput);
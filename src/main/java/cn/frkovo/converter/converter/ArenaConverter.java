@@ -2,6 +2,7 @@ package cn.frkovo.converter.converter;
 
 import cn.frkovo.converter.Main;
 import cn.frkovo.converter.model.old.OldArena;
+import cn.frkovo.converter.util.ConversionCache;
 import net.querz.nbt.io.NBTUtil;
 import net.querz.nbt.io.NamedTag;
 import net.querz.nbt.tag.*;
@@ -31,11 +32,17 @@ public class ArenaConverter {
     private static final Logger logger = LoggerFactory.getLogger(ArenaConverter.class);
     
     private final File schematicsFolder;
+    private final ConversionCache cache;  // null = always convert
     private int arenaId;
     
     public ArenaConverter(File schematicsFolder, int startArenaId) {
+        this(schematicsFolder, startArenaId, null);
+    }
+    
+    public ArenaConverter(File schematicsFolder, int startArenaId, ConversionCache cache) {
         this.schematicsFolder = schematicsFolder;
         this.arenaId = startArenaId;
+        this.cache = cache;
     }
     
     public void convert(File arenaFile) throws IOException {
@@ -56,6 +63,23 @@ public class ArenaConverter {
         // Create output folder: arena-id
         String folderName = arenaName;
         Path outputFolder = Path.of(Main.getOutputDir(), "Arenas", folderName);
+        
+        // Skip arenas whose yml and schematic are unchanged since the last run
+        String cacheUnit = "arena:" + arenaFile.getName();
+        String fingerprint = null;
+        if (cache != null) {
+            List<Path> inputs = new ArrayList<>();
+            inputs.add(arenaFile.toPath());
+            if (oldArena.getSchematicFile() != null) {
+                inputs.add(new File(schematicsFolder, oldArena.getSchematicFile()).toPath());
+            }
+            fingerprint = ConversionCache.fingerprint(inputs);
+            if (cache.isUpToDate(cacheUnit, fingerprint) && Files.exists(outputFolder.resolve("metadata.yml"))) {
+                logger.info("Arena unchanged, skipping: {} -> {}", arenaFile.getName(), folderName);
+                arenaId++;
+                return;
+            }
+        }
         Files.createDirectories(outputFolder);
         
         // Create manifest.yml
@@ -99,6 +123,10 @@ public class ArenaConverter {
         // Copy schematic file to output folder
         copySchematicFile(oldArena.getSchematicFile(), outputFolder, arenaName);
         
+        if (cache != null) {
+            cache.update(cacheUnit, fingerprint);
+        }
+        
         logger.info("Converted arena: {} -> {} ({})", arenaFile.getName(), folderName, arenaName);
         arenaId++;
     }
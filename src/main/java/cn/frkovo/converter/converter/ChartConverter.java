@@ -1,22 +1,25 @@
 package cn.frkovo.converter.converter;
 
 import cn.frkovo.converter.Main;
+import cn.frkovo.converter.mapper.EffectMapperRegistry;
 import cn.frkovo.converter.mapper.EffectTypeMapper;
 import cn.frkovo.converter.mapper.NoteTypeMapper;
+import cn.frkovo.converter.model.new_.NewChart;
 import cn.frkovo.converter.model.new_.NewEffect;
-import cn.frkovo.converter.model.new_.NewNote;
 import cn.frkovo.converter.model.new_.NewNumEvent;
 import cn.frkovo.converter.model.new_.NewTrack;
+import cn.frkovo.converter.model.new_.NoteBuffer;
 import cn.frkovo.converter.model.old.OldChart;
 import cn.frkovo.converter.model.old.OldChartMeta;
 import cn.frkovo.converter.model.old.OldEffect;
 import cn.frkovo.converter.model.old.OldFrame;
 import cn.frkovo.converter.model.old.OldMetadata;
 import cn.frkovo.converter.model.old.OldNote;
+import cn.frkovo.converter.reader.EffectIndex;
+import cn.frkovo.converter.util.ConversionCache;
 import cn.frkovo.converter.util.UUIDResolver;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
-import com.alibaba.fastjson2.JSONWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yaml.snakeyaml.DumperOptions;
@@ -25,9 +28,13 @@ import org.yaml.snakeyaml.Yaml;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Converts old chart format to new chart format
@@ -41,11 +48,51 @@ public class ChartConverter {
     // BPM setting
     private static final double BPM = 1200.0;
     
-    // Counter for generating unique holdGroup IDs
-    private int holdGroupCounter = 0;
+    private final ConversionOptions options;
+    private final ConversionCache cache;  // null = always convert
+    private final List<ChartSink> sinks;  // Every converted difficulty is written to all of them
+    
+    public ChartConverter() {
+        this(new ConversionOptions());
+    }
+    
+    public ChartConverter(ConversionOptions options) {
+        this(options, null);
+    }
+    
+    public ChartConverter(ConversionOptions options, ConversionCache cache) {
+        this.options = options;
+        this.cache = cache;
+        // Providers may widen what effects decode, so load them before any chart is parsed
+        EffectMapperRegistry.getDefault();
+        try {
+            this.sinks = ChartSinks.fromOptions(options);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot set up chart sinks", e);
+        }
+    }
+    
+    /**
+     * Check whether a chart folder has everything needed for conversion.
+     * Used to pre-assign song IDs before charts are converted in parallel.
+     */
+    public boolean isConvertible(File chartFolder) {
+        if (!new File(chartFolder, "metadata.yml").exists()) {
+            logger.warn("metadata.yml not found in {}", chartFolder.getName());
+            return false;
+        }
+        for (String difficultyFile : DIFFICULTY_FILES) {
+            if (new File(chartFolder, difficultyFile).exists()) {
+                return true;
+            }
+        }
+        logger.warn("No difficulty files found for chart: {} - skipping", chartFolder.getName());
+        return false;
+    }
     
     /**
-     * Convert a chart folder.
+     * Convert a chart folder. Difficulties are converted concurrently on the common fork-join pool.
+     * Safe to call concurrently for different folders: all per-chart state is local.
      * @return true if conversion was successful, false if skipped (no difficulty files)
      */
     public boolean convert(File chartFolder, int songId) throws IOException {
@@ -56,6 +103,29 @@ public class ChartConverter {
             return false;
         }
         
+        // Skip charts whose inputs, song ID and output options are unchanged since the last run
+        String folderName = String.valueOf(songId);
+        Path outputFolder = Path.of(Main.getOutputDir(), "Charts", folderName);
+        String cacheUnit = "chart:" + chartFolder.getName();
+        String fingerprint = null;
+        if (cache != null) {
+            List<Path> inputs = new ArrayList<>();
+            inputs.add(metadataFile.toPath());
+            for (String difficultyFile : DIFFICULTY_FILES) {
+                inputs.add(new File(chartFolder, difficultyFile).toPath());
+            }
+            if (options.getDictionary() != null) {
+                inputs.add(options.getDictionary());
+            }
+            // Charter names come from playerdata, so a renamed player changes the output too
+            fingerprint = ConversionCache.fingerprint(inputs, "songId=" + songId, options,
+                    "charters=" + ConversionCache.digest(resolvedCharters(chartFolder)));
+            if (cache.isUpToDate(cacheUnit, fingerprint) && hasOutputs(chartFolder, outputFolder)) {
+                logger.info("Chart unchanged, skipping: {} -> {}", chartFolder.getName(), folderName);
+                return true;
+            }
+        }
+        
         OldMetadata oldMetadata = OldMetadata.fromFile(metadataFile.getAbsolutePath());
         
         // Check if any difficulty files exist
@@ -73,24 +143,159 @@ public class ChartConverter {
         }
         
         // Create output folder
-        String folderName = String.valueOf(songId);
-        Path outputFolder = Path.of(Main.getOutputDir(), "Charts", folderName);
         Files.createDirectories(outputFolder);
         
         // Convert and write new metadata
         convertMetadata(oldMetadata, songId, outputFolder);
+        for (ChartSink sink : sinks) {
+            sink.prepare(outputFolder);
+        }
+        
+        if (options.isSharedEffects()) {
+            convertWithSharedEffects(songId, oldMetadata, chartFolder, outputFolder);
+        } else {
+            convertDifficulties(songId, oldMetadata, chartFolder, outputFolder);
+        }
+        
+        if (cache != null) {
+            cache.update(cacheUnit, fingerprint);
+        }
         
-        // Convert each difficulty
+         logger.info("Converted chart: {} -> {}", oldMetadata.getName(), folderName);
+         return true;
+    }
+    
+    /**
+     * The resolved charter names of every difficulty, as written to the chart metas
+     */
+    private String resolvedCharters(File chartFolder) throws IOException {
+        StringBuilder charters = new StringBuilder();
         for (String difficultyFile : DIFFICULTY_FILES) {
             File chartFile = new File(chartFolder, difficultyFile);
             if (chartFile.exists()) {
-                OldChart oldChart = OldChart.fromFile(chartFile);
-                convertChart(songId,oldMetadata, oldChart, difficultyFile.replace(".json", ""), outputFolder);
+                charters.append(difficultyFile).append('=')
+                        .append(resolveCharters(OldChart.readMeta(chartFile))).append(';');
+            }
+        }
+        return charters.toString();
+    }
+    
+    /**
+     * Whether everything a conversion of the chart writes is still there
+     */
+    private boolean hasOutputs(File chartFolder, Path outputFolder) {
+        if (!Files.exists(outputFolder.resolve("manifest.yml"))) {
+            return false;
+        }
+        for (String difficultyFile : DIFFICULTY_FILES) {
+            if (!new File(chartFolder, difficultyFile).exists()) {
+                continue;
+            }
+            String difficulty = difficultyFile.replace(".json", "");
+            for (ChartSink sink : sinks) {
+                for (Path output : sink.outputs(difficulty, outputFolder)) {
+                    if (!Files.exists(output)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+    
+    private void convertDifficulties(int songId, OldMetadata oldMetadata, File chartFolder, Path outputFolder) throws IOException {
+        // Convert each difficulty; they share nothing but the read-only metadata
+        List<ForkJoinTask<?>> difficulties = new ArrayList<>();
+        for (String difficultyFile : DIFFICULTY_FILES) {
+            File chartFile = new File(chartFolder, difficultyFile);
+            if (chartFile.exists()) {
+                difficulties.add(ForkJoinTask.adapt(() -> {
+                    try {
+                        OldChart oldChart = OldChart.fromFile(chartFile);
+                        convertChart(songId, oldMetadata, oldChart, difficultyFile.replace(".json", ""), outputFolder, null);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+        }
+        invokeAll(difficulties);
+    }
+    
+    /**
+     * Convert the difficulties of a chart, mapping each distinct effect list once.
+     * Effect lists that several difficulties have in common are written once as a
+     * shared effects file that their .rmcc files reference.
+     */
+    private void convertWithSharedEffects(int songId, OldMetadata oldMetadata, File chartFolder, Path outputFolder) throws IOException {
+        // Read all difficulties first, so their effect lists can be compared
+        List<String> names = new ArrayList<>();
+        List<ForkJoinTask<OldChart>> reads = new ArrayList<>();
+        for (String difficultyFile : DIFFICULTY_FILES) {
+            File chartFile = new File(chartFolder, difficultyFile);
+            if (chartFile.exists()) {
+                names.add(difficultyFile.replace(".json", ""));
+                reads.add(ForkJoinTask.adapt(() -> {
+                    try {
+                        return OldChart.fromFile(chartFile);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+        }
+        invokeAll(reads);
+        
+        // Difficulties by effect list; mapping mutates old effects, so group before mapping anything
+        Map<List<OldEffect>, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < reads.size(); i++) {
+            List<OldEffect> effects = reads.get(i).join().getEffects();
+            if (effects != null && !effects.isEmpty()) {
+                groups.computeIfAbsent(effects, key -> new ArrayList<>()).add(i);
             }
         }
         
-         logger.info("Converted chart: {} -> {}", oldMetadata.getName(), folderName);
-         return true;
+        MappedEffects[] shared = new MappedEffects[reads.size()];
+        int fileCount = 0;
+        for (List<Integer> group : groups.values()) {
+            if (group.size() < 2) {
+                continue;
+            }
+            List<String> difficulties = group.stream().map(names::get).toList();
+            OldChart first = reads.get(group.get(0)).join();
+            String fileName = ChartSinks.SHARED_EFFECTS_PREFIX + (++fileCount) + ".json";
+            MappedEffects mapped = mapEffects(first.getEffects(), songId + " " + String.join("+", difficulties), fileName);
+            for (ChartSink sink : sinks) {
+                sink.writeSharedEffects(fileName, mapped.effects(), mapped.index(), outputFolder);
+            }
+            for (int i : group) {
+                shared[i] = mapped;
+            }
+            logger.debug("Song {}: {} share {} effect(s) in {}", songId, difficulties, mapped.effects().size(), fileName);
+        }
+        
+        List<ForkJoinTask<?>> difficulties = new ArrayList<>();
+        for (int i = 0; i < reads.size(); i++) {
+            OldChart oldChart = reads.get(i).join();
+            String difficulty = names.get(i);
+            MappedEffects effects = shared[i];
+            difficulties.add(ForkJoinTask.adapt(() -> {
+                try {
+                    convertChart(songId, oldMetadata, oldChart, difficulty, outputFolder, effects);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        invokeAll(difficulties);
+    }
+    
+    private static void invokeAll(List<? extends ForkJoinTask<?>> tasks) throws IOException {
+        try {
+            ForkJoinTask.invokeAll(tasks);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
     
     private void convertMetadata(OldMetadata old, int songId, Path outputFolder) throws IOException {
@@ -124,42 +329,151 @@ public class ChartConverter {
         }
     }
     
-    private void convertChart(int songID,OldMetadata om, OldChart oldChart, String difficulty, Path outputFolder) throws IOException {
-        JSONObject newChart = new JSONObject();
+    private void convertChart(int songID, OldMetadata om, OldChart oldChart, String difficulty, Path outputFolder,
+                              MappedEffects sharedEffects) throws IOException {
+        NewChart newChart = buildChart(songID, om, oldChart, difficulty, sharedEffects);
+        if (sinks.size() == 1) {
+            sinks.get(0).write(newChart, difficulty, outputFolder);
+            return;
+        }
+        
+        // Converted once, written by every sink in parallel; sinks only read the chart
+        List<ForkJoinTask<?>> writes = new ArrayList<>();
+        for (ChartSink sink : sinks) {
+            writes.add(ForkJoinTask.adapt(() -> {
+                try {
+                    sink.write(newChart, difficulty, outputFolder);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        invokeAll(writes);
+    }
+    
+    /**
+     * Convert one difficulty into the new chart model without writing it.
+     */
+    public NewChart buildChart(int songID, OldMetadata om, OldChart oldChart, String difficulty) {
+        return buildChart(songID, om, oldChart, difficulty, null);
+    }
+    
+    /**
+     * @param sharedEffects Effects already mapped for several difficulties, or null to map this chart's own
+     */
+    private NewChart buildChart(int songID, OldMetadata om, OldChart oldChart, String difficulty, MappedEffects sharedEffects) {
+        NewChart newChart = new NewChart();
+        newChart.setLength(om.getLength());
         
         // Convert meta
-        JSONObject meta = convertChartMeta(songID, oldChart.getMeta(), difficulty);
-        newChart.put("meta", meta);
+        newChart.setMeta(convertChartMeta(songID, oldChart.getMeta(), difficulty));
         
         // Convert frames to tracks
-        List<NewTrack> tracks = convertFramesToTracks(oldChart.getFrames());
-        JSONArray tracksArray = new JSONArray();
-        for (NewTrack track : tracks) {
-            tracksArray.add(convertTrackToJson(om.getLength(), track));
+        newChart.setTracks(convertFramesToTracks(oldChart.getFrames()));
+        
+        // SPEED effects become the speed events of every track
+        if (oldChart.getEffects() != null) {
+            List<NewNumEvent> speedEvents = compileSpeedEvents(oldChart.getEffects(), om.getLength());
+            for (NewTrack track : newChart.getTracks()) {
+                track.getSpeedEvents().addAll(speedEvents);
+            }
+        }
+        
+        // Spawn schedule, derived from the speed events above
+        if (options.getSpawnLookahead() > 0) {
+            OldChartMeta oldMeta = oldChart.getMeta();
+            float flowSpeed = oldMeta != null ? oldMeta.getFlow_speed() : 1.0f;
+            int offset = oldMeta != null ? oldMeta.getOffset() : 0;
+            for (NewTrack track : newChart.getTracks()) {
+                track.setSpawnIndex(SpawnScheduler.build(track.getNotes(), track.getSpeedEvents(), flowSpeed,
+                        offset, options.getSpawnLookahead(), options.getSpawnWindow()));
+            }
         }
-        newChart.put("tracks", tracksArray);
         
         // Convert effects
-        JSONArray eventsArray = new JSONArray();
-        if (oldChart.getEffects() != null) {
-            for (OldEffect oldEffect : oldChart.getEffects()) {
+        MappedEffects effects = sharedEffects != null ? sharedEffects
+                : mapEffects(oldChart.getEffects(), songID + " " + difficulty, null);
+        newChart.setEffects(effects.effects());
+        newChart.setEffectIndex(effects.index());
+        newChart.setEffectsFile(effects.file());
+        return newChart;
+    }
+    
+    /**
+     * Mapped, beat-sorted effects of a chart
+     * @param file Shared effects file they are written to, null = inline in the .rmcc
+     */
+    private record MappedEffects(List<NewEffect> effects, Map<String, int[]> index, String file) {}
+    
+    private MappedEffects mapEffects(List<OldEffect> oldEffects, String chartName, String file) {
+        List<NewEffect> effects = new ArrayList<>();
+        if (oldEffects != null) {
+            for (OldEffect oldEffect : oldEffects) {
                 NewEffect newEffect = EffectTypeMapper.map(oldEffect);
                 if (newEffect != null) {
-                    eventsArray.add(convertEffectToJson(newEffect));
+                    effects.add(newEffect);
                 }
             }
         }
-        newChart.put("effects", eventsArray);
-
-        // Write chart JSON
-        String fileName = difficulty + ".rmcc";
-        Files.writeString(outputFolder.resolve(fileName), newChart.toJSONString(JSONWriter.Feature.PrettyFormat));
+        
+        // Stable: effects on the same beat keep their order from the old chart
+        effects.sort(Comparator.comparingDouble(NewEffect::getBeat));
+        if (options.isPairHolograms()) {
+            int peakHolograms = HologramLifecycle.pair(effects);
+            if (peakHolograms > 0) {
+                logger.info("Chart {}: at most {} hologram(s) live", chartName, peakHolograms);
+            }
+        }
+        if (options.isBatchEffects()) {
+            effects = EffectBatcher.batch(effects);
+        }
+        Map<String, int[]> index = options.isEffectIndex() ? EffectIndex.build(effects) : null;
+        return new MappedEffects(effects, index, file);
     }
     
-    private JSONObject convertChartMeta(int sid, OldChartMeta old, String difficulty) {
-        JSONObject meta = new JSONObject();
+    /**
+     * Compile SPEED effects into constant-speed events: each SPEED sets the speed from its tick
+     * until the next one (or the end of the song), starting at 1.0. Consecutive segments with
+     * the same speed are merged, and of several changes on one tick the last one wins.
+     * @return The events, or an empty list if the speed never leaves 1.0 (the default event)
+     */
+    private static List<NewNumEvent> compileSpeedEvents(List<OldEffect> effects, int length) {
+        // Speed changes by tick; a later effect on the same tick replaces an earlier one
+        TreeMap<Long, Float> changes = new TreeMap<>();
+        for (OldEffect effect : effects) {
+            if (effect != null && effect.getSpeed() != null && effect.getEffectType() != null
+                    && "SPEED".equals(OldEffect.normaliseType(effect.getEffectType()))) {
+                long tick = Math.max(0, effect.getStartTick());
+                if (tick < length) {
+                    changes.put(tick, effect.getSpeed());
+                }
+            }
+        }
         
-        // Charters - resolve UUIDs to names
+        List<NewNumEvent> events = new ArrayList<>();
+        long start = 0;
+        float speed = 1.0f;
+        for (Map.Entry<Long, Float> change : changes.entrySet()) {
+            if (change.getValue() == speed) {
+                continue;  // Run-length merge: the current segment just continues
+            }
+            if (change.getKey() > start) {
+                events.add(new NewNumEvent(start, change.getKey(), speed, speed, 0));
+            }
+            start = change.getKey();
+            speed = change.getValue();
+        }
+        if (events.isEmpty() && speed == 1.0f) {
+            return List.of();
+        }
+        events.add(new NewNumEvent(start, length, speed, speed, 0));
+        return events;
+    }
+    
+    /**
+     * Charter alias or charter, then coop charters, with UUIDs resolved to player names
+     */
+    private static JSONArray resolveCharters(OldChartMeta old) {
         JSONArray charters = new JSONArray();
         UUIDResolver resolver = Main.getUuidResolver();
         
@@ -194,7 +508,13 @@ public class ChartConverter {
         if (charters.isEmpty()) {
             charters.add("Unknown");
         }
-        meta.put("charters", charters);
+        return charters;
+    }
+    
+    private JSONObject convertChartMeta(int sid, OldChartMeta old, String difficulty) {
+        JSONObject meta = new JSONObject();
+        
+        meta.put("charters", resolveCharters(old));
         
         // Level
         meta.put("level", old != null && old.getLevel() > 0 ? Math.round(old.getLevel() * 10.0) / 10.0 : 1.0); // round to 1 decimal place
@@ -230,6 +550,11 @@ public class ChartConverter {
             meta.put("initialArena", old.getInitial_arena());
         }
         meta.remove("flow-speed"); // Remove flow-speed as it's deprecated
+        
+        // Tell readers that HOLD notes carry holdLength instead of one note per tick
+        if (options.isCompactHolds()) {
+            meta.put("holdEncoding", "compact");
+        }
         return meta;
     }
     
@@ -244,175 +569,182 @@ public class ChartConverter {
     }
     
     private List<NewTrack> convertFramesToTracks(List<OldFrame> frames) {
-        // Group notes by position to create tracks
-        // For simplicity, we'll create a single track with all notes
-        // In a more sophisticated implementation, we could create multiple tracks
-        
         NewTrack mainTrack = new NewTrack();
         mainTrack.setId(0);
         
         if (frames != null) {
-            for (OldFrame frame : frames) {
-                if (frame.getNotes() != null) {
-                    for (OldNote oldNote : frame.getNotes()) {
-                        List<NewNote> newNotes = convertNote(oldNote, frame.getJudgeTick());
-                        if (newNotes != null) {
-                            mainTrack.getNotes().addAll(newNotes);
-                        }
-                    }
-                }
-            }
+            mainTrack.setNotes(convertFrames(frames));
         }
         
         // Sort notes by beat
-        mainTrack.getNotes().sort(Comparator.comparingDouble(NewNote::getBeat));
+        mainTrack.getNotes().sortByBeat();
         
+        if (options.getTrackCount() > 1 && !mainTrack.getNotes().isEmpty()) {
+            return partitionByLane(mainTrack.getNotes(), options.getTrackCount());
+        }
         List<NewTrack> tracks = new ArrayList<>();
         tracks.add(mainTrack);
         return tracks;
     }
     
     /**
-     * Convert old note to new note(s).
-     * For HOLD notes, expand to multiple notes with same holdGroup ID.
-     * Other note types return a single note with holdGroup = -1.
+     * Split notes into up to {@code laneCount} tracks by horizontal position, so the runtime
+     * can cull and animate each lane on its own. Lane boundaries are quantiles of the notes'
+     * posX, numbered left to right; lanes without notes are left out. Every track keeps
+     * beat order and gets its own default events. All notes of a hold share a position,
+     * so a hold never spans tracks.
      */
-    private List<NewNote> convertNote(OldNote old, long judgeTick) {
-        if (old == null) {
-            return null;
+    private List<NewTrack> partitionByLane(NoteBuffer notes, int laneCount) {
+        float[] sortedX = new float[notes.size()];
+        for (int i = 0; i < notes.size(); i++) {
+            sortedX[i] = notes.getPosX(i);
+        }
+        Arrays.sort(sortedX);
+        float[] boundaries = new float[laneCount - 1];
+        for (int lane = 1; lane < laneCount; lane++) {
+            boundaries[lane - 1] = sortedX[(int) ((long) lane * sortedX.length / laneCount)];
         }
         
-        List<NewNote> result = new ArrayList<>();
-        int noteType = NoteTypeMapper.map(old.getType());
+        NoteBuffer[] lanes = new NoteBuffer[laneCount];
+        for (int i = 0; i < notes.size(); i++) {
+            // Lane = number of boundaries at or left of the note
+            int lane = 0;
+            while (lane < boundaries.length && boundaries[lane] <= notes.getPosX(i)) {
+                lane++;
+            }
+            if (lanes[lane] == null) {
+                lanes[lane] = new NoteBuffer();
+            }
+            lanes[lane].add(notes, i);
+        }
         
-        // For HOLD notes, expand to multiple notes with holdGroup
-        if (noteType == NoteTypeMapper.HOLD && old.getLength() != null && old.getLength() > 0) {
-            int length = old.getLength();
-            int holdGroupId = holdGroupCounter++;
-            
-            for (int i = 0; i <= length; i++) {
-                NewNote note = new NewNote();
-                note.setNoteType(noteType);
-                note.setBeat(judgeTick + i);  // tick = beat when BPM = 1200
-                note.setPosX(old.getPosX());
-                note.setPosY(old.getPosY());
-                note.setPosZ(0);
-                note.setHoldGroup(holdGroupId);  // Same group ID for all parts of the HOLD
-                result.add(note);
+        List<NewTrack> tracks = new ArrayList<>();
+        for (NoteBuffer lane : lanes) {
+            if (lane != null) {
+                NewTrack track = new NewTrack();
+                track.setId(tracks.size());
+                track.setNotes(lane);
+                tracks.add(track);
             }
-        } else {
-            // For non-HOLD notes, return single note with holdGroup = -1
-            NewNote note = new NewNote();
-            note.setNoteType(noteType);
-            note.setBeat(judgeTick);  // tick = beat when BPM = 1200
-            note.setPosX(old.getPosX());
-            note.setPosY(old.getPosY());
-            note.setPosZ(0);
-            note.setHoldGroup(-1);  // Not part of any hold
-            result.add(note);
-        }
-        
-        return result;
-    }
-    
-    private JSONObject convertTrackToJson(int l ,NewTrack track) {
-        JSONObject json = new JSONObject();
-        json.put("id", track.getId());
-        
-        // Speed events - default: speed 1.0 from start to end
-        JSONArray speedEvents = new JSONArray();
-        speedEvents.add(convertNumEventToJson(new NewNumEvent(0, l, 1.0f, 1.0f, 0)));
-        json.put("speedEvents", speedEvents);
-        
-        // Transform events - default: position 0 from start to end
-        JSONArray xTransformEvents = new JSONArray();
-        xTransformEvents.add(convertNumEventToJson(new NewNumEvent(0, l, 0.0f, 0.0f, 0)));
-        json.put("xTransformEvents", xTransformEvents);
-        
-        JSONArray yTransformEvents = new JSONArray();
-        yTransformEvents.add(convertNumEventToJson(new NewNumEvent(0, l, 0.0f, 0.0f, 0)));
-        json.put("yTransformEvents", yTransformEvents);
-        
-        JSONArray zTransformEvents = new JSONArray();
-        zTransformEvents.add(convertNumEventToJson(new NewNumEvent(0, l, 0.0f, 0.0f, 0)));
-        json.put("zTransformEvents", zTransformEvents);
-        
-        // Rotate events - default: rotation 0 from start to end
-        JSONArray xRotateEvents = new JSONArray();
-        xRotateEvents.add(convertNumEventToJson(new NewNumEvent(0, l, 0.0f, 0.0f, 0)));
-        json.put("xRotateEvents", xRotateEvents);
-        
-        JSONArray yRotateEvents = new JSONArray();
-        yRotateEvents.add(convertNumEventToJson(new NewNumEvent(0, l, 0.0f, 0.0f, 0)));
-        json.put("yRotateEvents", yRotateEvents);
-        
-        JSONArray zRotateEvents = new JSONArray();
-        zRotateEvents.add(convertNumEventToJson(new NewNumEvent(0, l, 0.0f, 0.0f, 0)));
-        json.put("zRotateEvents", zRotateEvents);
-        
-        // Scale events - default: scale 1.0 from start to end
-        JSONArray xScaleEvents = new JSONArray();
-        xScaleEvents.add(convertNumEventToJson(new NewNumEvent(0, l, 1.0f, 1.0f, 0)));
-        json.put("xScaleEvents", xScaleEvents);
-        
-        JSONArray yScaleEvents = new JSONArray();
-        yScaleEvents.add(convertNumEventToJson(new NewNumEvent(0, l, 1.0f, 1.0f, 0)));
-        json.put("yScaleEvents", yScaleEvents);
-        
-        JSONArray zScaleEvents = new JSONArray();
-        zScaleEvents.add(convertNumEventToJson(new NewNumEvent(0, l, 1.0f, 1.0f, 0)));
-        json.put("zScaleEvents", zScaleEvents);
-        
-        // Notes
-        JSONArray notes = new JSONArray();
-        for (NewNote note : track.getNotes()) {
-            notes.add(convertNoteToJson(note));
-        }
-        json.put("notes", notes);
-        
-        return json;
+        }
+        return tracks;
     }
     
-    private JSONArray convertNumEventsToJson(List<NewNumEvent> events) {
-        JSONArray array = new JSONArray();
-        for (NewNumEvent event : events) {
-            array.add(convertNumEventToJson(event));
+    /**
+     * Convert frames to notes in frame order. Large frame lists are split into ranges
+     * converted on the fork-join pool and concatenated in order.
+     * 
+     * Each range numbers its holds from 0; concatenation shifts them by the number of
+     * holds in the ranges before it, so holdGroup IDs are the same as a sequential pass.
+     * IDs start at 0 in every difficulty (before 1.3 one counter ran across the whole run).
+     */
+    private NoteBuffer convertFrames(List<OldFrame> frames) {
+        int chunkSize = options.getFrameChunkSize();
+        if (frames.size() <= chunkSize) {
+            return new FrameRange(frames).compute().notes;
         }
-        return array;
+        
+        List<FrameRange> ranges = new ArrayList<>();
+        for (int from = 0; from < frames.size(); from += chunkSize) {
+            ranges.add(new FrameRange(frames.subList(from, Math.min(from + chunkSize, frames.size()))));
+        }
+        ForkJoinTask.invokeAll(ranges);
+        
+        int total = 0;
+        for (FrameRange range : ranges) {
+            total += range.join().notes.size();
+        }
+        NoteBuffer notes = new NoteBuffer(total);
+        int holdGroupOffset = 0;
+        for (FrameRange range : ranges) {
+            ConvertedRange converted = range.join();
+            notes.addAll(converted.notes, holdGroupOffset);
+            holdGroupOffset += converted.holdGroups;
+        }
+        return notes;
     }
     
-    private JSONObject convertNumEventToJson(NewNumEvent event) {
-        JSONObject json = new JSONObject();
-        json.put("startBeat", event.getStartBeat());
-        json.put("endBeat", event.getEndBeat());
-        json.put("startValue", event.getStartValue());
-        json.put("endValue", event.getEndValue());
-        json.put("easing", event.getEasing());
-        return json;
+    private record ConvertedRange(NoteBuffer notes, int holdGroups) {
     }
     
-    private JSONObject convertNoteToJson(NewNote note) {
-        JSONObject json = new JSONObject();
-        json.put("noteType", note.getNoteType());
-        json.put("beat", note.getBeat());
+    /**
+     * Converts a contiguous range of frames with its own holdGroup counter
+     */
+    private class FrameRange extends RecursiveTask<ConvertedRange> {
+        private final List<OldFrame> frames;
         
-        // Only output holdGroup for HOLD notes (holdGroup >= 0)
-        if (note.getHoldGroup() >= 0) {
-            json.put("holdGroup", note.getHoldGroup());
+        FrameRange(List<OldFrame> frames) {
+            this.frames = frames;
         }
         
-        json.put("pos", note.toPosArray());
-        json.put("scale", note.toScaleArray());
-        json.put("rotation", note.toRotationArray());
-        
-        return json;
+        @Override
+        protected ConvertedRange compute() {
+            AtomicInteger holdGroupCounter = new AtomicInteger();
+            NoteBuffer notes = new NoteBuffer(countNotes(frames));
+            for (OldFrame frame : frames) {
+                if (frame.getNotes() != null) {
+                    for (OldNote oldNote : frame.getNotes()) {
+                        convertNote(oldNote, frame.getJudgeTick(), holdGroupCounter, notes);
+                    }
+                }
+            }
+            return new ConvertedRange(notes, holdGroupCounter.get());
+        }
     }
     
-    private JSONObject convertEffectToJson(NewEffect effect) {
-        JSONObject json = new JSONObject();
-        json.put("effectType", effect.getEventType());
-        json.put("beat", effect.getBeat());
-        json.put("properties", effect.getProperties());
-        return json;
+    /**
+     * Number of notes the frames convert to, so the buffer is allocated once
+     */
+    private int countNotes(List<OldFrame> frames) {
+        int count = 0;
+        for (OldFrame frame : frames) {
+            if (frame.getNotes() != null) {
+                for (OldNote oldNote : frame.getNotes()) {
+                    if (oldNote == null) {
+                        continue;
+                    }
+                    boolean expandedHold = !options.isCompactHolds()
+                            && NoteTypeMapper.map(oldNote.getType()) == NoteTypeMapper.HOLD
+                            && oldNote.getLength() != null && oldNote.getLength() > 0;
+                    count += expandedHold ? oldNote.getLength() + 1 : 1;
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Convert old note to new note(s) and append them to {@code out}.
+     * For HOLD notes, expand to multiple notes with same holdGroup ID,
+     * or a single head note with holdLength when compact holds are enabled.
+     * Other note types produce a single note with holdGroup = -1.
+     */
+    private void convertNote(OldNote old, long judgeTick, AtomicInteger holdGroupCounter, NoteBuffer out) {
+        if (old == null) {
+            return;
+        }
+        
+        int noteType = NoteTypeMapper.map(old.getType());
+        
+        // For HOLD notes, expand to multiple notes with holdGroup
+        // tick = beat when BPM = 1200
+        if (noteType == NoteTypeMapper.HOLD && old.getLength() != null && old.getLength() > 0) {
+            int length = old.getLength();
+            int holdGroupId = holdGroupCounter.getAndIncrement();
+            
+            if (options.isCompactHolds()) {
+                // Tail is at beat + holdLength
+                out.add(noteType, judgeTick, old.getPosX(), old.getPosY(), holdGroupId, length);
+                return;
+            }
+            
+            for (int i = 0; i <= length; i++) {
+                // Same group ID for all parts of the HOLD
+                out.add(noteType, judgeTick + i, old.getPosX(), old.getPosY(), holdGroupId, 0);
+            }
+        } else {
+            // For non-HOLD notes, a single note with holdGroup = -1 (not part of any hold)
+            out.add(noteType, judgeTick, old.getPosX(), old.getPosY(), -1, 0);
+        }
     }
 }
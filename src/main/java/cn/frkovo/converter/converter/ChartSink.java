@@ -0,0 +1,37 @@
+package cn.frkovo.converter.converter;
+
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.model.new_.NewEffect;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One output format of the converted charts. ChartConverter converts each
+ * difficulty once and hands the same chart to every configured sink
+ * concurrently, so sinks must only read the chart.
+ */
+public interface ChartSink {
+    
+    /**
+     * Called once per song before any chart is written, e.g. to create directories
+     * or remove files of a previous run
+     */
+    default void prepare(Path songFolder) throws IOException {}
+    
+    /**
+     * Write a shared effects file that the song's charts reference by name;
+     * sinks that always inline effects ignore it
+     */
+    default void writeSharedEffects(String fileName, List<NewEffect> effects, Map<String, int[]> effectIndex,
+                                    Path songFolder) throws IOException {}
+    
+    void write(NewChart chart, String difficulty, Path songFolder) throws IOException;
+    
+    /**
+     * Files write() produces for a difficulty; a chart whose outputs are missing is converted again
+     */
+    List<Path> outputs(String difficulty, Path songFolder);
+}
@@ -0,0 +1,260 @@
+package cn.frkovo.converter.converter;
+
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.model.new_.NewEffect;
+import cn.frkovo.converter.reader.ChunkedFormat;
+import cn.frkovo.converter.reader.RmczFormat;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the chart sinks from the options.
+ * 
+ * converter.sinks is a comma-separated list of kind[:subdirectory], e.g.
+ * "pretty:charters,compact,rmcz:archive". Kinds:
+ * <ul>
+ *   <li>rmcc - .rmcc, compact if compactOutput is set</li>
+ *   <li>pretty / compact - .rmcc in that style regardless of compactOutput</li>
+ *   <li>rmcb - binary .rmcb</li>
+ *   <li>rmcz - .rmcc deflated with the preset dictionary (needs converter.dictionary)</li>
+ *   <li>chunked - beat windows for lazy loading (needs converter.chunkBeats)</li>
+ * </ul>
+ * Without converter.sinks the sinks follow the individual output options:
+ * rmcc, plus rmcb, rmcz and chunked when they are enabled.
+ * 
+ * Sinks run concurrently, so two sinks writing the same file type into the
+ * same directory (e.g. "pretty,compact") are rejected.
+ */
+public final class ChartSinks {
+    
+    // Shared effects files are named shared-effects-<n>.json
+    static final String SHARED_EFFECTS_PREFIX = "shared-effects-";
+    
+    private ChartSinks() {}
+    
+    public static List<ChartSink> fromOptions(ConversionOptions options) throws IOException {
+        String spec = options.getSinks();
+        if (spec == null || spec.isBlank()) {
+            List<String> kinds = new ArrayList<>();
+            kinds.add("rmcc");
+            if (options.isBinaryOutput()) {
+                kinds.add("rmcb");
+            }
+            if (options.getDictionary() != null) {
+                kinds.add("rmcz");
+            }
+            if (options.getChunkBeats() > 0) {
+                kinds.add("chunked");
+            }
+            spec = String.join(",", kinds);
+        }
+        
+        List<ChartSink> sinks = new ArrayList<>();
+        Map<String, String> claimed = new HashMap<>();  // "<extension> in <directory>" -> sink entry writing it
+        for (String entry : spec.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int colon = entry.indexOf(':');
+            String kind = colon >= 0 ? entry.substring(0, colon) : entry;
+            String subdirectory = colon >= 0 ? Path.of(entry.substring(colon + 1)).normalize().toString() : "";
+            
+            String output = extensionOf(kind) + " in " + (subdirectory.isEmpty() ? "the song folder" : subdirectory);
+            String previous = claimed.putIfAbsent(output, entry);
+            if (previous != null) {
+                throw new IllegalArgumentException("converter.sinks: " + previous + " and " + entry + " would both write " + output);
+            }
+            sinks.add(create(kind, subdirectory, options));
+        }
+        if (sinks.isEmpty()) {
+            throw new IllegalArgumentException("No chart sinks in converter.sinks: " + spec);
+        }
+        return sinks;
+    }
+    
+    /**
+     * File type a sink kind writes; kinds with the same extension can't share a directory
+     */
+    private static String extensionOf(String kind) {
+        return switch (kind) {
+            case "rmcc", "pretty", "compact" -> ".rmcc";
+            case "rmcb" -> ".rmcb";
+            case "rmcz" -> ".rmcz";
+            case "chunked" -> ChunkedFormat.DIRECTORY_SUFFIX;
+            default -> throw new IllegalArgumentException("Unknown chart sink: " + kind);
+        };
+    }
+    
+    private static ChartSink create(String kind, String subdirectory, ConversionOptions options) throws IOException {
+        return switch (kind) {
+            case "rmcc" -> new RmccSink(new RmccWriter(options.isCompactOutput(), options.isStringTable()), subdirectory);
+            case "pretty" -> new RmccSink(new RmccWriter(false, options.isStringTable()), subdirectory);
+            case "compact" -> new RmccSink(new RmccWriter(true, options.isStringTable()), subdirectory);
+            case "rmcb" -> {
+                RmcbWriter writer = new RmcbWriter();
+                yield new FileSink(subdirectory, ".rmcb") {
+                    @Override
+                    public void write(NewChart chart, String difficulty, Path songFolder) throws IOException {
+                        writer.write(chart, output(difficulty, songFolder));
+                    }
+                };
+            }
+            case "rmcz" -> {
+                if (options.getDictionary() == null) {
+                    throw new IllegalArgumentException("The rmcz sink needs converter.dictionary");
+                }
+                RmccWriter rmccWriter = new RmccWriter(options.isCompactOutput(), options.isStringTable());
+                yield new RmczSink(rmccWriter, RmczWriter.load(rmccWriter, options.getDictionary()), subdirectory);
+            }
+            case "chunked" -> {
+                if (options.getChunkBeats() <= 0) {
+                    throw new IllegalArgumentException("The chunked sink needs converter.chunkBeats");
+                }
+                ChunkedChartWriter writer = new ChunkedChartWriter(new RmccWriter(options.isCompactOutput(), options.isStringTable()));
+                yield new FileSink(subdirectory, ChunkedFormat.DIRECTORY_SUFFIX) {
+                    @Override
+                    public void write(NewChart chart, String difficulty, Path songFolder) throws IOException {
+                        writer.write(chart, output(difficulty, songFolder), options.getChunkBeats());
+                    }
+                    
+                    @Override
+                    public List<Path> outputs(String difficulty, Path songFolder) {
+                        return List.of(super.outputs(difficulty, songFolder).get(0).resolve(ChunkedFormat.INDEX_FILE));
+                    }
+                };
+            }
+            default -> throw new IllegalArgumentException("Unknown chart sink: " + kind);
+        };
+    }
+    
+    private static Path directory(Path songFolder, String subdirectory) throws IOException {
+        if (subdirectory.isEmpty()) {
+            return songFolder;
+        }
+        Path directory = songFolder.resolve(subdirectory);
+        Files.createDirectories(directory);
+        return directory;
+    }
+    
+    /**
+     * A sink writing one file (or directory) per difficulty, named difficulty + extension
+     */
+    private abstract static class FileSink implements ChartSink {
+        final String subdirectory;
+        final String extension;
+        
+        FileSink(String subdirectory, String extension) {
+            this.subdirectory = subdirectory;
+            this.extension = extension;
+        }
+        
+        /**
+         * The output path of a difficulty, creating the subdirectory if needed
+         */
+        Path output(String difficulty, Path songFolder) throws IOException {
+            return directory(songFolder, subdirectory).resolve(difficulty + extension);
+        }
+        
+        @Override
+        public List<Path> outputs(String difficulty, Path songFolder) {
+            return List.of(songFolder.resolve(subdirectory).resolve(difficulty + extension));
+        }
+    }
+    
+    /**
+     * .rmcc charts, with shared effects files next to them
+     */
+    private static class RmccSink extends FileSink {
+        final RmccWriter writer;
+        
+        RmccSink(RmccWriter writer, String subdirectory) {
+            this(writer, subdirectory, ".rmcc");
+        }
+        
+        RmccSink(RmccWriter writer, String subdirectory, String extension) {
+            super(subdirectory, extension);
+            this.writer = writer;
+        }
+        
+        /**
+         * Extension of the shared effects files this sink writes
+         */
+        String sharedEffectsExtension() {
+            return ".json";
+        }
+        
+        @Override
+        public void prepare(Path songFolder) throws IOException {
+            // Shared effects of a previous run may no longer be referenced
+            try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory(songFolder, subdirectory),
+                    SHARED_EFFECTS_PREFIX + "*" + sharedEffectsExtension())) {
+                for (Path file : stale) {
+                    Files.delete(file);
+                }
+            }
+        }
+        
+        @Override
+        public void writeSharedEffects(String fileName, List<NewEffect> effects, Map<String, int[]> effectIndex,
+                                       Path songFolder) throws IOException {
+            writer.writeEffects(effects, effectIndex, directory(songFolder, subdirectory).resolve(fileName));
+        }
+        
+        @Override
+        public void write(NewChart chart, String difficulty, Path songFolder) throws IOException {
+            writer.write(chart, output(difficulty, songFolder));
+        }
+    }
+    
+    /**
+     * Deflated .rmcz charts; the shared effects files they reference are deflated too
+     * (shared-effects-N.rmcz), so they never collide with those of an .rmcc sink
+     */
+    private static class RmczSink extends RmccSink {
+        final RmczWriter rmczWriter;
+        
+        RmczSink(RmccWriter writer, RmczWriter rmczWriter, String subdirectory) {
+            super(writer, subdirectory, RmczFormat.EXTENSION);
+            this.rmczWriter = rmczWriter;
+        }
+        
+        @Override
+        String sharedEffectsExtension() {
+            return RmczFormat.EXTENSION;
+        }
+        
+        @Override
+        public void writeSharedEffects(String fileName, List<NewEffect> effects, Map<String, int[]> effectIndex,
+                                       Path songFolder) throws IOException {
+            rmczWriter.writeEffects(effects, effectIndex, directory(songFolder, subdirectory).resolve(rmczName(fileName)));
+        }
+        
+        @Override
+        public void write(NewChart chart, String difficulty, Path songFolder) throws IOException {
+            if (chart.getEffectsFile() != null) {
+                // Same chart, referencing the deflated copy of its shared effects
+                NewChart copy = new NewChart();
+                copy.setMeta(chart.getMeta());
+                copy.setLength(chart.getLength());
+                copy.setTracks(chart.getTracks());
+                copy.setEffects(chart.getEffects());
+                copy.setEffectIndex(chart.getEffectIndex());
+                copy.setEffectsFile(rmczName(chart.getEffectsFile()));
+                chart = copy;
+            }
+            rmczWriter.write(chart, output(difficulty, songFolder));
+        }
+        
+        private static String rmczName(String sharedEffectsFile) {
+            return sharedEffectsFile.substring(0, sharedEffectsFile.lastIndexOf('.')) + RmczFormat.EXTENSION;
+        }
+    }
+}
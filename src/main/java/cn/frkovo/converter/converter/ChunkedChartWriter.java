@@ -0,0 +1,216 @@
+package cn.frkovo.converter.converter;
+
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.model.new_.NewEffect;
+import cn.frkovo.converter.model.new_.NewNumEvent;
+import cn.frkovo.converter.model.new_.NewTrack;
+import cn.frkovo.converter.model.new_.NoteBuffer;
+import cn.frkovo.converter.reader.ChunkedFormat;
+import com.alibaba.fastjson2.JSONWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes a chart as fixed-length beat windows plus a small index (see {@link ChunkedFormat}),
+ * so a loader can parse the first window right away and the rest in the background.
+ * Notes and effects must be sorted by beat; each window is then a contiguous range of them.
+ */
+public class ChunkedChartWriter {
+    
+    private final RmccWriter rmccWriter;
+    
+    public ChunkedChartWriter() {
+        this(new RmccWriter());
+    }
+    
+    /**
+     * @param rmccWriter Writer for the chunk contents; its compact mode applies to the index too
+     */
+    public ChunkedChartWriter(RmccWriter rmccWriter) {
+        this.rmccWriter = rmccWriter;
+    }
+    
+    /**
+     * Write the chart into {@code directory}, replacing the chunks of a previous run
+     */
+    public void write(NewChart chart, Path directory, int windowBeats) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> old = Files.list(directory)) {
+            for (Path file : old.toList()) {
+                Files.delete(file);
+            }
+        }
+        
+        List<NewTrack> tracks = chart.getTracks();
+        List<NewEffect> effects = chart.getEffects();
+        
+        try (JSONWriter index = rmccWriter.newJsonWriter()) {
+            index.startObject();
+            index.writeName("version");
+            index.writeColon();
+            index.writeInt32(ChunkedFormat.VERSION);
+            index.writeName("meta");
+            index.writeColon();
+            index.writeAny(chart.getMeta());
+            index.writeName("length");
+            index.writeColon();
+            index.writeInt32(chart.getLength());
+            index.writeName("windowBeats");
+            index.writeColon();
+            index.writeInt32(windowBeats);
+            if (chart.getEffectIndex() != null) {
+                index.writeName("effectIndex");
+                index.writeColon();
+                index.writeBool(true);
+            }
+            
+            index.writeName("tracks");
+            index.writeColon();
+            index.startArray();
+            for (int i = 0; i < tracks.size(); i++) {
+                if (i != 0) {
+                    index.writeComma();
+                }
+                writeTrackHeader(index, chart.getLength(), tracks.get(i));
+            }
+            index.endArray();
+            
+            index.writeName("chunks");
+            index.writeColon();
+            index.startArray();
+            int[] noteStarts = new int[tracks.size()];
+            int[] noteEnds = new int[tracks.size()];
+            int effectStart = 0;
+            int windows = (int) Math.floor(lastBeat(chart) / windowBeats) + 1;
+            boolean first = true;
+            for (int window = 0; window < windows; window++) {
+                double endBeat = (double) (window + 1) * windowBeats;
+                int noteCount = 0;
+                for (int t = 0; t < tracks.size(); t++) {
+                    NoteBuffer notes = tracks.get(t).getNotes();
+                    int end = noteStarts[t];
+                    while (end < notes.size() && notes.getBeat(end) < endBeat) {
+                        end++;
+                    }
+                    noteEnds[t] = end;
+                    noteCount += end - noteStarts[t];
+                }
+                int effectEnd = effectStart;
+                while (effectEnd < effects.size() && effects.get(effectEnd).getBeat() < endBeat) {
+                    effectEnd++;
+                }
+                
+                if (noteCount > 0 || effectEnd > effectStart) {
+                    String file = ChunkedFormat.chunkFile(window);
+                    writeChunk(directory.resolve(file), tracks, noteStarts, noteEnds, effects.subList(effectStart, effectEnd));
+                    
+                    if (!first) {
+                        index.writeComma();
+                    }
+                    first = false;
+                    writeChunkEntry(index, file, endBeat - windowBeats, endBeat, noteCount, effectEnd - effectStart);
+                }
+                System.arraycopy(noteEnds, 0, noteStarts, 0, noteEnds.length);
+                effectStart = effectEnd;
+            }
+            index.endArray();
+            index.endObject();
+            
+            try (OutputStream out = Files.newOutputStream(directory.resolve(ChunkedFormat.INDEX_FILE))) {
+                index.flushTo(out);
+            }
+        }
+    }
+    
+    /**
+     * Beat of the last note or effect, -1 if there are none
+     */
+    private double lastBeat(NewChart chart) {
+        double last = -1;
+        for (NewTrack track : chart.getTracks()) {
+            NoteBuffer notes = track.getNotes();
+            if (!notes.isEmpty()) {
+                last = Math.max(last, notes.getBeat(notes.size() - 1));
+            }
+        }
+        if (!chart.getEffects().isEmpty()) {
+            last = Math.max(last, chart.getEffects().get(chart.getEffects().size() - 1).getBeat());
+        }
+        return last;
+    }
+    
+    private void writeTrackHeader(JSONWriter writer, int length, NewTrack track) {
+        writer.startObject();
+        writer.writeName("id");
+        writer.writeColon();
+        writer.writeInt32(track.getId());
+        List<List<NewNumEvent>> eventLists = track.eventLists();
+        for (int i = 0; i < eventLists.size(); i++) {
+            rmccWriter.writeEvents(writer, NewTrack.EVENT_LIST_NAMES[i], length, NewTrack.EVENT_LIST_DEFAULTS[i], eventLists.get(i));
+        }
+        writer.endObject();
+    }
+    
+    private void writeChunk(Path file, List<NewTrack> tracks, int[] noteStarts, int[] noteEnds,
+                            List<NewEffect> effects) throws IOException {
+        try (JSONWriter writer = rmccWriter.newJsonWriter();
+             OutputStream out = Files.newOutputStream(file)) {
+            writer.startObject();
+            writer.writeName("tracks");
+            writer.writeColon();
+            writer.startArray();
+            for (int t = 0; t < tracks.size(); t++) {
+                if (t != 0) {
+                    writer.writeComma();
+                }
+                writer.startObject();
+                writer.writeName("id");
+                writer.writeColon();
+                writer.writeInt32(tracks.get(t).getId());
+                writer.writeName("notes");
+                writer.writeColon();
+                writer.startArray();
+                NoteBuffer notes = tracks.get(t).getNotes();
+                for (int i = noteStarts[t]; i < noteEnds[t]; i++) {
+                    if (i != noteStarts[t]) {
+                        writer.writeComma();
+                    }
+                    rmccWriter.writeNote(writer, notes, i);
+                }
+                writer.endArray();
+                writer.endObject();
+            }
+            writer.endArray();
+            
+            // In string table mode each chunk carries its own table
+            rmccWriter.writeEffectsFields(writer, effects, null);
+            writer.endObject();
+            writer.flushTo(out);
+        }
+    }
+    
+    private void writeChunkEntry(JSONWriter writer, String file, double startBeat, double endBeat, int notes, int effects) {
+        writer.startObject();
+        writer.writeName("file");
+        writer.writeColon();
+        writer.writeString(file);
+        writer.writeName("startBeat");
+        writer.writeColon();
+        writer.writeDouble(startBeat);
+        writer.writeName("endBeat");
+        writer.writeColon();
+        writer.writeDouble(endBeat);
+        writer.writeName("notes");
+        writer.writeColon();
+        writer.writeInt32(notes);
+        writer.writeName("effects");
+        writer.writeColon();
+        writer.writeInt32(effects);
+        writer.endObject();
+    }
+}
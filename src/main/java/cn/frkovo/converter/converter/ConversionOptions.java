@@ -0,0 +1,93 @@
+package cn.frkovo.converter.converter;
+
+import lombok.Data;
+import lombok.ToString;
+
+import java.nio.file.Path;
+
+/**
+ * Conversion settings, read from system properties (-Dconverter.xxx=...)
+ * 
+ * toString() covers every setting that affects the output and is part of
+ * the incremental conversion fingerprint; settings that don't change the
+ * output are excluded from it.
+ */
+@Data
+public class ConversionOptions {
+    // Number of chart folders converted concurrently (1 = sequential)
+    @ToString.Exclude
+    private int chartWorkers = Runtime.getRuntime().availableProcessors();
+    
+    // Frames per fork-join range when converting the notes of one chart
+    @ToString.Exclude
+    private int frameChunkSize = 2048;
+    
+    // Split notes into up to this many tracks by horizontal lane (1 = a single track)
+    private int trackCount = 1;
+    
+    // Write each HOLD as one head note with holdLength instead of one note per tick
+    private boolean compactHolds = false;
+    
+    // Also write each difficulty as binary .rmcb next to the .rmcc
+    private boolean binaryOutput = false;
+    
+    // Write an effectIndex (offsets into effects per effect type) into .rmcc
+    private boolean effectIndex = false;
+    
+    // Also write each difficulty as beat windows of this many beats for lazy loading (0 = off)
+    private int chunkBeats = 0;
+    
+    // Minified JSON without fields equal to their documented defaults
+    private boolean compactOutput = false;
+    
+    // Give holograms their exact lifetime from the matching REMOVEHOLOGRAM
+    private boolean pairHolograms = false;
+    
+    // Group effects sharing a beat into one BATCH effect
+    private boolean batchEffects = false;
+    
+    // Write a spawn index per track for notes this many ticks of travel ahead (0 = off)
+    private int spawnLookahead = 0;
+    
+    // Runtime ticks per spawn index bucket
+    private int spawnWindow = 1;
+    
+    // Write effect lists shared by several difficulties of a song once, referenced from each .rmcc
+    private boolean sharedEffects = false;
+    
+    // Write strings repeated in effect properties once per chart and refer to them by index
+    private boolean stringTable = false;
+    
+    // Also write each difficulty as .rmcz, deflated with this preset dictionary (null = off)
+    private Path dictionary = null;
+    
+    // Chart outputs as kind[:subdirectory],... (see ChartSinks); empty = from the options above
+    private String sinks = "";
+    
+    // Skip units whose inputs haven't changed since the last run
+    @ToString.Exclude
+    private boolean incremental = true;
+    
+    public static ConversionOptions fromSystemProperties() {
+        ConversionOptions options = new ConversionOptions();
+        options.setChartWorkers(Math.max(1, Integer.getInteger("converter.workers", options.getChartWorkers())));
+        options.setFrameChunkSize(Math.max(1, Integer.getInteger("converter.frameChunk", options.getFrameChunkSize())));
+        options.setTrackCount(Math.max(1, Integer.getInteger("converter.tracks", 1)));
+        options.setCompactHolds(Boolean.getBoolean("converter.compactHolds"));
+        options.setBinaryOutput(Boolean.getBoolean("converter.binary"));
+        options.setEffectIndex(Boolean.getBoolean("converter.effectIndex"));
+        options.setChunkBeats(Math.max(0, Integer.getInteger("converter.chunkBeats", 0)));
+        options.setCompactOutput(Boolean.getBoolean("converter.compactOutput"));
+        options.setPairHolograms(Boolean.getBoolean("converter.pairHolograms"));
+        options.setBatchEffects(Boolean.getBoolean("converter.batchEffects"));
+        options.setSpawnLookahead(Math.max(0, Integer.getInteger("converter.spawnLookahead", 0)));
+        options.setSpawnWindow(Math.max(1, Integer.getInteger("converter.spawnWindow", 1)));
+        options.setSharedEffects(Boolean.getBoolean("converter.sharedEffects"));
+        options.setStringTable(Boolean.getBoolean("converter.stringTable"));
+        String dictionary = System.getProperty("converter.dictionary");
+        options.setDictionary(dictionary != null && !dictionary.isEmpty() ? Path.of(dictionary) : null);
+        options.setSinks(System.getProperty("converter.sinks", ""));
+        options.setIncremental(Boolean.parseBoolean(System.getProperty("converter.incremental", "true")));
+        return options;
+    }
+}
@@ -0,0 +1,58 @@
+package cn.frkovo.converter.converter;
+
+import cn.frkovo.converter.model.new_.NewEffect;
+import cn.frkovo.converter.reader.EffectIndex;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Groups effects that share a beat into one BATCH record, so the runtime
+ * schedules one wakeup per beat instead of one per effect.
+ * 
+ * A batch is {"effectType": "BATCH", "beat": b, "properties": {"effects": [...]}}
+ * where each entry is {"effectType", "properties"} in the original order.
+ * Effects alone on their beat are left as they are.
+ */
+public final class EffectBatcher {
+    
+    public static final String BATCH_TYPE = EffectIndex.BATCH_TYPE;
+    public static final String EFFECTS_KEY = EffectIndex.BATCH_EFFECTS_KEY;
+    
+    private EffectBatcher() {}
+    
+    /**
+     * @param effects Effects sorted by beat
+     * @return The effects with each run of same-beat effects replaced by a batch
+     */
+    public static List<NewEffect> batch(List<NewEffect> effects) {
+        List<NewEffect> batched = new ArrayList<>(effects.size());
+        int start = 0;
+        while (start < effects.size()) {
+            double beat = effects.get(start).getBeat();
+            int end = start + 1;
+            while (end < effects.size() && effects.get(end).getBeat() == beat) {
+                end++;
+            }
+            
+            if (end - start == 1) {
+                batched.add(effects.get(start));
+            } else {
+                JSONArray entries = new JSONArray(end - start);
+                for (int i = start; i < end; i++) {
+                    JSONObject entry = new JSONObject();
+                    entry.put("effectType", effects.get(i).getEventType());
+                    entry.put("properties", effects.get(i).getProperties());
+                    entries.add(entry);
+                }
+                JSONObject props = new JSONObject();
+                props.put(EFFECTS_KEY, entries);
+                batched.add(new NewEffect(BATCH_TYPE, beat, props));
+            }
+            start = end;
+        }
+        return batched;
+    }
+}
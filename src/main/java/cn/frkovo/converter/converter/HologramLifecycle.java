@@ -0,0 +1,112 @@
+package cn.frkovo.converter.converter;
+
+import cn.frkovo.converter.model.new_.NewEffect;
+import com.alibaba.fastjson2.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pairs HOLOGRAM and REMOVE_HOLOGRAM effects by id so holograms carry their real lifetime.
+ * 
+ * A hologram without a duration lives for a year; when a later removal with the same id
+ * ends it, the hologram gets the exact duration up to the removal instead and the removal
+ * is dropped. Removals of holograms that have already expired are dropped as well.
+ * A hologram re-created with the id of a live one replaces it, so the old one ends there.
+ * Removals of ids not created in the chart are kept, as are removals on the hologram's own
+ * beat (a zero duration would be ambiguous).
+ */
+public final class HologramLifecycle {
+    
+    private static final long MS_PER_BEAT = 50;  // tick = beat when BPM = 1200
+    
+    private HologramLifecycle() {}
+    
+    /**
+     * Pair holograms in a beat-sorted effect list, in place
+     * @return Peak number of holograms alive at the same time afterwards
+     */
+    public static int pair(List<NewEffect> effects) {
+        Map<String, NewEffect> live = new HashMap<>();
+        List<NewEffect> kept = new ArrayList<>(effects.size());
+        for (NewEffect effect : effects) {
+            JSONObject props = effect.getProperties();
+            String id = props != null ? props.getString("id") : null;
+            if (id == null) {
+                kept.add(effect);
+                continue;
+            }
+            
+            if ("HOLOGRAM".equals(effect.getEventType())) {
+                NewEffect replaced = live.put(id, effect);
+                if (replaced != null && endBeat(replaced) > effect.getBeat() && effect.getBeat() > replaced.getBeat()) {
+                    setDuration(replaced, effect.getBeat());
+                }
+            } else if ("REMOVE_HOLOGRAM".equals(effect.getEventType())) {
+                NewEffect hologram = live.remove(id);
+                if (hologram != null) {
+                    double removeBeat = effect.getBeat();
+                    if (endBeat(hologram) <= removeBeat) {
+                        continue;  // Already expired, nothing to remove
+                    }
+                    if (removeBeat > hologram.getBeat()) {
+                        setDuration(hologram, removeBeat);
+                        continue;
+                    }
+                }
+            }
+            kept.add(effect);
+        }
+        
+        effects.clear();
+        effects.addAll(kept);
+        return peakLive(effects);
+    }
+    
+    private static void setDuration(NewEffect hologram, double endBeat) {
+        hologram.getProperties().put("duration", Math.round((endBeat - hologram.getBeat()) * MS_PER_BEAT));
+    }
+    
+    private static double endBeat(NewEffect hologram) {
+        return hologram.getBeat() + (double) hologram.getProperties().getLongValue("duration") / MS_PER_BEAT;
+    }
+    
+    /**
+     * Sweep over hologram lifetimes; a hologram ending on a beat is gone before one starting on it
+     */
+    private static int peakLive(List<NewEffect> effects) {
+        List<double[]> changes = new ArrayList<>();  // {beat, +1 / -1}
+        Map<String, NewEffect> live = new HashMap<>();
+        for (NewEffect effect : effects) {
+            if ("HOLOGRAM".equals(effect.getEventType())) {
+                changes.add(new double[]{effect.getBeat(), 1});
+                changes.add(new double[]{endBeat(effect), -1});
+                String id = effect.getProperties().getString("id");
+                NewEffect replaced = id != null ? live.put(id, effect) : null;
+                if (replaced != null && endBeat(replaced) > effect.getBeat()) {
+                    // Re-created on the beat it was created (its duration is left as is), it still ends here
+                    changes.add(new double[]{effect.getBeat(), -1});
+                    changes.add(new double[]{endBeat(replaced), 1});
+                }
+            } else if ("REMOVE_HOLOGRAM".equals(effect.getEventType()) && effect.getProperties() != null) {
+                // Remaining removals end their hologram early
+                NewEffect hologram = live.remove(effect.getProperties().getString("id"));
+                if (hologram != null && endBeat(hologram) > effect.getBeat()) {
+                    changes.add(new double[]{effect.getBeat(), -1});
+                    changes.add(new double[]{endBeat(hologram), 1});
+                }
+            }
+        }
+        changes.sort((a, b) -> a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(a[1], b[1]));
+        
+        int current = 0;
+        int peak = 0;
+        for (double[] change : changes) {
+            current += (int) change[1];
+            peak = Math.max(peak, current);
+        }
+        return peak;
+    }
+}
@@ -1,5 +1,6 @@
 package cn.frkovo.converter.converter;
 
+import cn.frkovo.converter.util.ConversionCache;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import com.alibaba.fastjson2.JSONWriter;
@@ -31,11 +32,25 @@ public class ResourcePackConverter {
     // sounds.json path
     private static final String SOUNDS_JSON_PATH = "assets/rhythmc/sounds.json";
     
+    // Output resource pack file name
+    private static final String OUTPUT_ZIP = "RhythMC_Resource_Pack.zip";
+    
+    // Cache unit for the combined resource pack
+    private static final String CACHE_UNIT = "resourcepack";
+    
     // Map of SHA -> songId
     private final Map<String, Integer> shaToSongIdMap;
+    private final ConversionOptions options;
+    private final ConversionCache cache;  // null = always convert
     
     public ResourcePackConverter(Map<String, Integer> shaToSongIdMap) {
+        this(shaToSongIdMap, new ConversionOptions(), null);
+    }
+    
+    public ResourcePackConverter(Map<String, Integer> shaToSongIdMap, ConversionOptions options, ConversionCache cache) {
         this.shaToSongIdMap = shaToSongIdMap;
+        this.options = options;
+        this.cache = cache;
     }
     
     /**
@@ -46,6 +61,18 @@ public class ResourcePackConverter {
      * @return Path to the created resource pack zip file
      */
     public Path convert(Path rmcBDir, Path outputDir) throws IOException {
+        Path outputZip = outputDir.resolve(OUTPUT_ZIP);
+        
+        // Skip if no player.zip and no SHA -> songId mapping changed since the last run
+        String fingerprint = null;
+        if (cache != null) {
+            fingerprint = fingerprint(rmcBDir);
+            if (cache.isUpToDate(CACHE_UNIT, fingerprint) && Files.exists(outputZip)) {
+                logger.info("Resource packs unchanged, skipping: {}", outputZip);
+                return outputZip;
+            }
+        }
+        
         // Create temp directory for extracted files
         Path tempDir = Files.createTempDirectory("rhythmc_resource_pack");
         
@@ -88,22 +115,46 @@ public class ResourcePackConverter {
         // Write sounds.json
         Path soundsJsonPath = tempDir.resolve(SOUNDS_JSON_PATH);
         Files.createDirectories(soundsJsonPath.getParent());
-        Files.writeString(soundsJsonPath, soundsJson.toJSONString(JSONWriter.Feature.PrettyFormat));
+        Files.writeString(soundsJsonPath, toJson(soundsJson));
         
         // Create pack.mcmeta
         createPackMcmeta(tempDir);
         
         // Create the final zip file
-        Path outputZip = outputDir.resolve("RhythMC_Resource_Pack.zip");
         createZip(tempDir, outputZip);
         
         // Clean up temp directory
         deleteDirectory(tempDir);
         
+        if (cache != null) {
+            cache.update(CACHE_UNIT, fingerprint);
+        }
+        
         logger.info("Created resource pack: {}", outputZip);
         return outputZip;
     }
     
+    /**
+     * Fingerprint of every zip that would be used, plus the songIds they map to.
+     */
+    private String fingerprint(Path rmcBDir) throws IOException {
+        List<Path> zips = new ArrayList<>();
+        List<String> mappings = new ArrayList<>();
+        try (var stream = Files.list(rmcBDir)) {
+            for (Path shaFolder : stream.filter(Files::isDirectory).sorted().toList()) {
+                Integer songId = shaToSongIdMap.get(shaFolder.getFileName().toString());
+                if (songId == null) {
+                    continue;
+                }
+                mappings.add(shaFolder.getFileName() + "=" + songId);
+                try (var zipStream = Files.list(shaFolder)) {
+                    zipStream.filter(p -> p.toString().endsWith(".zip")).findFirst().ifPresent(zips::add);
+                }
+            }
+        }
+        return ConversionCache.fingerprint(zips, mappings, "compactOutput=" + options.isCompactOutput());
+    }
+    
     /**
      * Extract music from a zip file and add to sounds.json.
      */
@@ -143,13 +194,18 @@ public class ResourcePackConverter {
         JSONArray sounds = new JSONArray();
         JSONObject sound = new JSONObject();
         sound.put("name", "rhythmc:s" + songId);
-        sound.put("type", "file");
-        sound.put("volume", 1.0f);
-        sound.put("pitch", 1.0f);
-        sound.put("weight", 1);
+        if (!options.isCompactOutput()) {
+            // Minecraft's defaults, left out in compact mode
+            sound.put("type", "file");
+            sound.put("volume", 1.0f);
+            sound.put("pitch", 1.0f);
+            sound.put("weight", 1);
+        }
         sound.put("stream", true);  // Stream for better performance with long audio
-        sound.put("attenuation_distance", 16);
-        sound.put("preload", false);
+        if (!options.isCompactOutput()) {
+            sound.put("attenuation_distance", 16);
+            sound.put("preload", false);
+        }
         sounds.add(sound);
         
         soundEvent.put("sounds", sounds);
@@ -176,7 +232,11 @@ public class ResourcePackConverter {
         packMcmeta.put("pack", pack);
         
         Path mcmetaPath = dir.resolve("pack.mcmeta");
-        Files.writeString(mcmetaPath, packMcmeta.toJSONString(JSONWriter.Feature.PrettyFormat));
+        Files.writeString(mcmetaPath, toJson(packMcmeta));
+    }
+    
+    private String toJson(JSONObject json) {
+        return options.isCompactOutput() ? json.toJSONString() : json.toJSONString(JSONWriter.Feature.PrettyFormat);
     }
     
     /**
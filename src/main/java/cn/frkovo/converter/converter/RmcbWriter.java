@@ -0,0 +1,225 @@
+package cn.frkovo.converter.converter;
+
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.model.new_.NewEffect;
+import cn.frkovo.converter.model.new_.NewNumEvent;
+import cn.frkovo.converter.model.new_.NewTrack;
+import cn.frkovo.converter.model.new_.NoteBuffer;
+import cn.frkovo.converter.reader.RmcbFormat;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a chart in the binary .rmcb format, see {@link RmcbFormat} for the layout.
+ */
+public class RmcbWriter {
+    
+    public void write(NewChart chart, Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(chart, out);
+        }
+    }
+    
+    public void write(NewChart chart, OutputStream out) throws IOException {
+        // The body is encoded first so the string table is complete when the header is written
+        Encoder body = new Encoder();
+        body.value(chart.getMeta());
+        body.varint(chart.getLength());
+        
+        body.varint(chart.getTracks().size());
+        for (NewTrack track : chart.getTracks()) {
+            writeTrack(body, track);
+        }
+        
+        List<NewEffect> effects = chart.getEffects();
+        body.varint(effects.size());
+        double[] effectBeats = new double[effects.size()];
+        for (int i = 0; i < effectBeats.length; i++) {
+            effectBeats[i] = effects.get(i).getBeat();
+        }
+        body.beats(effectBeats, effectBeats.length);
+        for (NewEffect effect : effects) {
+            body.string(effect.getEventType());
+            body.value(effect.getProperties());
+        }
+        
+        Encoder header = new Encoder();
+        header.write(RmcbFormat.MAGIC, 0, RmcbFormat.MAGIC.length);
+        header.varint(RmcbFormat.VERSION);
+        header.varint(chart.getEffectIndex() != null ? RmcbFormat.FLAG_EFFECT_INDEX : 0);
+        header.varint(body.strings.size());
+        for (String string : body.strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            header.varint(bytes.length);
+            header.write(bytes, 0, bytes.length);
+        }
+        
+        header.writeTo(out);
+        body.writeTo(out);
+    }
+    
+    private void writeTrack(Encoder out, NewTrack track) {
+        out.zigzag(track.getId());
+        for (List<NewNumEvent> events : track.eventLists()) {
+            if (events.isEmpty()) {
+                out.varint(RmcbFormat.DEFAULT_EVENTS);
+                continue;
+            }
+            out.varint(events.size() + 1L);
+            for (NewNumEvent event : events) {
+                out.float64(event.getStartBeat());
+                out.float64(event.getEndBeat());
+                out.float64(event.getStartValue());
+                out.float64(event.getEndValue());
+                out.varint(event.getEasing());
+            }
+        }
+        
+        NoteBuffer notes = track.getNotes();
+        int size = notes.size();
+        out.varint(size);
+        double[] beats = new double[size];
+        for (int i = 0; i < size; i++) {
+            beats[i] = notes.getBeat(i);
+        }
+        for (int i = 0; i < size; i++) {
+            out.write(notes.getType(i));
+        }
+        out.beats(beats, size);
+        for (int i = 0; i < size; i++) {
+            out.float32(notes.getPosX(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.float32(notes.getPosY(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.varint(notes.getHoldGroup(i) + 1L);  // -1 (no hold) becomes 0
+        }
+        for (int i = 0; i < size; i++) {
+            out.varint(notes.getHoldLength(i));
+        }
+    }
+    
+    /**
+     * Byte buffer with the .rmcb primitive encodings and a string table
+     */
+    private static class Encoder extends ByteArrayOutputStream {
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> stringIndex = new HashMap<>();
+        
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+        
+        void zigzag(long value) {
+            varint((value << 1) ^ (value >> 63));
+        }
+        
+        void float32(float value) {
+            int bits = Float.floatToIntBits(value);
+            write(bits >>> 24);
+            write(bits >>> 16);
+            write(bits >>> 8);
+            write(bits);
+        }
+        
+        void float64(double value) {
+            long bits = Double.doubleToLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (bits >>> shift));
+            }
+        }
+        
+        void string(String value) {
+            Integer index = stringIndex.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.add(value);
+                stringIndex.put(value, index);
+            }
+            varint(index);
+        }
+        
+        /**
+         * Integer beats are delta encoded, anything fractional falls back to raw doubles
+         */
+        void beats(double[] beats, int size) {
+            boolean integral = true;
+            for (int i = 0; i < size && integral; i++) {
+                integral = beats[i] == Math.rint(beats[i]) && Math.abs(beats[i]) < (1L << 52);
+            }
+            if (!integral) {
+                varint(RmcbFormat.BEATS_RAW);
+                for (int i = 0; i < size; i++) {
+                    float64(beats[i]);
+                }
+                return;
+            }
+            varint(RmcbFormat.BEATS_DELTA);
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                long beat = (long) beats[i];
+                zigzag(beat - previous);
+                previous = beat;
+            }
+        }
+        
+        void value(Object value) {
+            if (value == null) {
+                write(RmcbFormat.TAG_NULL);
+            } else if (value instanceof Boolean bool) {
+                write(bool ? RmcbFormat.TAG_TRUE : RmcbFormat.TAG_FALSE);
+            } else if (value instanceof Long number) {
+                write(RmcbFormat.TAG_LONG);  // Kept apart so e.g. a Long duration of 1000 doesn't come back as Integer
+                zigzag(number);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                write(RmcbFormat.TAG_INT);
+                zigzag(((Number) value).longValue());
+            } else if (value instanceof Float number) {
+                write(RmcbFormat.TAG_FLOAT);
+                float32(number);
+            } else if (value instanceof Double number) {
+                write(RmcbFormat.TAG_DOUBLE);
+                float64(number);
+            } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+                write(RmcbFormat.TAG_DECIMAL);
+                string(value.toString());
+            } else if (value instanceof String string) {
+                write(RmcbFormat.TAG_STRING);
+                string(string);
+            } else if (value instanceof Map<?, ?> map) {
+                write(RmcbFormat.TAG_OBJECT);
+                varint(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    string(String.valueOf(entry.getKey()));
+                    value(entry.getValue());
+                }
+            } else if (value instanceof Collection<?> collection) {
+                write(RmcbFormat.TAG_ARRAY);
+                varint(collection.size());
+                for (Object item : collection) {
+                    value(item);
+                }
+            } else {
+                throw new IllegalArgumentException("Unsupported value type in chart: " + value.getClass().getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package cn.frkovo.converter.converter;
+
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.model.new_.NewEffect;
+import cn.frkovo.converter.model.new_.NewNumEvent;
+import cn.frkovo.converter.model.new_.NewTrack;
+import cn.frkovo.converter.model.new_.NoteBuffer;
+import cn.frkovo.converter.model.new_.SpawnIndex;
+import cn.frkovo.converter.reader.StringTable;
+import com.alibaba.fastjson2.JSONWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a chart as .rmcc JSON straight to the output file.
+ * 
+ * Uses the same JSONWriter calls fastjson2 makes for JSONObject/JSONArray,
+ * so the output is byte-identical to the old tree based writer, but no
+ * JSONObject tree is built and the buffer is flushed to disk as notes are written.
+ * 
+ * Compact mode writes minified JSON and leaves out what readers fill in:
+ * default event lists (one event over [0, length], with "length" written
+ * at the top level instead), pos z (0), note scale (1, 1, 1) and rotation (0, 0, 0).
+ * 
+ * A chart with an effectsFile references a shared effects file (written by
+ * writeEffects) instead of holding its effects and effect index inline.
+ * 
+ * With a string table, strings repeated in effect properties are written once
+ * as "strings" before the effects and referenced by index (see StringTable).
+ */
+public class RmccWriter {
+    
+    // Flush the writer buffer to the file every this many notes
+    private static final int FLUSH_INTERVAL = 1024;
+    
+    private final boolean compact;
+    private final boolean stringTable;
+    
+    public RmccWriter() {
+        this(false);
+    }
+    
+    public RmccWriter(boolean compact) {
+        this(compact, false);
+    }
+    
+    public RmccWriter(boolean compact, boolean stringTable) {
+        this.compact = compact;
+        this.stringTable = stringTable;
+    }
+    
+    JSONWriter newJsonWriter() {
+        return compact ? JSONWriter.ofUTF8() : JSONWriter.ofUTF8(JSONWriter.Feature.PrettyFormat);
+    }
+    
+    public void write(NewChart chart, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(chart, out);
+        }
+    }
+    
+    public void write(NewChart chart, OutputStream out) throws IOException {
+        try (JSONWriter writer = newJsonWriter()) {
+            writer.startObject();
+            
+            writer.writeName("meta");
+            writer.writeColon();
+            writer.writeAny(chart.getMeta());
+            
+            if (compact) {
+                writer.writeName("length");
+                writer.writeColon();
+                writer.writeInt32(chart.getLength());
+            }
+            
+            writer.writeName("tracks");
+            writer.writeColon();
+            writer.startArray();
+            for (int i = 0; i < chart.getTracks().size(); i++) {
+                if (i != 0) {
+                    writer.writeComma();
+                }
+                writeTrack(writer, out, chart.getLength(), chart.getTracks().get(i));
+            }
+            writer.endArray();
+            writer.flushTo(out);
+            
+            if (chart.getEffectsFile() != null) {
+                writer.writeName("effectsFile");
+                writer.writeColon();
+                writer.writeString(chart.getEffectsFile());
+            } else {
+                writeEffectsFields(writer, chart.getEffects(), chart.getEffectIndex());
+            }
+            
+            writer.endObject();
+            writer.flushTo(out);
+        }
+    }
+    
+    /**
+     * Write a shared effects file: an object with just effects and the optional effectIndex
+     */
+    public void writeEffects(List<NewEffect> effects, Map<String, int[]> effectIndex, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            writeEffects(effects, effectIndex, out);
+        }
+    }
+    
+    public void writeEffects(List<NewEffect> effects, Map<String, int[]> effectIndex, OutputStream out) throws IOException {
+        try (JSONWriter writer = newJsonWriter()) {
+            writer.startObject();
+            writeEffectsFields(writer, effects, effectIndex);
+            writer.endObject();
+            writer.flushTo(out);
+        }
+    }
+    
+    /**
+     * Write "strings" (in string table mode), "effects" and the optional "effectIndex" fields
+     */
+    void writeEffectsFields(JSONWriter writer, List<NewEffect> effects, Map<String, int[]> effectIndex) {
+        StringTable table = stringTable ? StringTable.build(effects) : null;
+        if (table != null) {
+            writer.writeName("strings");
+            writer.writeColon();
+            writer.writeAny(table.getStrings());
+        }
+        
+        writer.writeName("effects");
+        writer.writeColon();
+        writer.startArray();
+        for (int i = 0; i < effects.size(); i++) {
+            if (i != 0) {
+                writer.writeComma();
+            }
+            writeEffect(writer, effects.get(i), table);
+        }
+        writer.endArray();
+        
+        if (effectIndex != null) {
+            writer.writeName("effectIndex");
+            writer.writeColon();
+            writer.writeAny(effectIndex);
+        }
+    }
+    
+    private void writeTrack(JSONWriter writer, OutputStream out, int length, NewTrack track) throws IOException {
+        writer.startObject();
+        writer.writeName("id");
+        writer.writeColon();
+        writer.writeInt32(track.getId());
+        
+        // Empty event lists get the default event: speed/scale 1.0 and transform/rotate 0 from start to end
+        List<List<NewNumEvent>> eventLists = track.eventLists();
+        for (int i = 0; i < eventLists.size(); i++) {
+            writeEvents(writer, NewTrack.EVENT_LIST_NAMES[i], length, NewTrack.EVENT_LIST_DEFAULTS[i], eventLists.get(i));
+        }
+        
+        writer.writeName("notes");
+        writer.writeColon();
+        writer.startArray();
+        NoteBuffer notes = track.getNotes();
+        for (int i = 0; i < notes.size(); i++) {
+            if (i != 0) {
+                writer.writeComma();
+            }
+            writeNote(writer, notes, i);
+            if (i % FLUSH_INTERVAL == FLUSH_INTERVAL - 1) {
+                writer.flushTo(out);
+            }
+        }
+        writer.endArray();
+        
+        if (track.getSpawnIndex() != null) {
+            writeSpawnIndex(writer, track.getSpawnIndex());
+        }
+        writer.endObject();
+    }
+    
+    private void writeSpawnIndex(JSONWriter writer, SpawnIndex spawnIndex) {
+        writer.writeName("spawnIndex");
+        writer.writeColon();
+        writer.startObject();
+        writer.writeName("windowTicks");
+        writer.writeColon();
+        writer.writeInt32(spawnIndex.getWindowTicks());
+        writer.writeName("lookaheadTicks");
+        writer.writeColon();
+        writer.writeInt32(spawnIndex.getLookaheadTicks());
+        writer.writeName("starts");
+        writer.writeColon();
+        writer.writeAny(spawnIndex.getStarts());
+        writer.endObject();
+    }
+    
+    void writeEvents(JSONWriter writer, String name, int length, float defaultValue, List<NewNumEvent> events) {
+        if (compact && isDefault(events, length, defaultValue)) {
+            return;
+        }
+        writer.writeName(name);
+        writer.writeColon();
+        writer.startArray();
+        if (events.isEmpty()) {
+            writeNumEvent(writer, new NewNumEvent(0, length, defaultValue, defaultValue, 0));
+        }
+        for (int i = 0; i < events.size(); i++) {
+            if (i != 0) {
+                writer.writeComma();
+            }
+            writeNumEvent(writer, events.get(i));
+        }
+        writer.endArray();
+    }
+    
+    /**
+     * Empty, or just the default event over [0, length]
+     */
+    private static boolean isDefault(List<NewNumEvent> events, int length, float defaultValue) {
+        if (events.isEmpty()) {
+            return true;
+        }
+        if (events.size() != 1) {
+            return false;
+        }
+        NewNumEvent event = events.get(0);
+        return event.getStartBeat() == 0 && event.getEndBeat() == length
+                && event.getStartValue() == defaultValue && event.getEndValue() == defaultValue
+                && event.getEasing() == 0;
+    }
+    
+    private void writeNumEvent(JSONWriter writer, NewNumEvent event) {
+        writer.startObject();
+        writer.writeName("startBeat");
+        writer.writeColon();
+        writer.writeDouble(event.getStartBeat());
+        writer.writeName("endBeat");
+        writer.writeColon();
+        writer.writeDouble(event.getEndBeat());
+        writer.writeName("startValue");
+        writer.writeColon();
+        writer.writeDouble(event.getStartValue());
+        writer.writeName("endValue");
+        writer.writeColon();
+        writer.writeDouble(event.getEndValue());
+        writer.writeName("easing");
+        writer.writeColon();
+        writer.writeInt32(event.getEasing());
+        writer.endObject();
+    }
+    
+    void writeNote(JSONWriter writer, NoteBuffer notes, int index) {
+        writer.startObject();
+        writer.writeName("noteType");
+        writer.writeColon();
+        writer.writeInt32(notes.getType(index));
+        writer.writeName("beat");
+        writer.writeColon();
+        writer.writeDouble(notes.getBeat(index));
+        
+        // Only output holdGroup for HOLD notes (holdGroup >= 0)
+        if (notes.getHoldGroup(index) >= 0) {
+            writer.writeName("holdGroup");
+            writer.writeColon();
+            writer.writeInt32(notes.getHoldGroup(index));
+        }
+        if (notes.getHoldLength(index) > 0) {
+            writer.writeName("holdLength");
+            writer.writeColon();
+            writer.writeInt32(notes.getHoldLength(index));
+        }
+        
+        // Positions are stored as float but have always been written as double
+        writer.writeName("pos");
+        writer.writeColon();
+        writer.startArray();
+        writer.writeDouble(notes.getPosX(index));
+        writer.writeComma();
+        writer.writeDouble(notes.getPosY(index));
+        if (compact) {
+            writer.endArray();
+            writer.endObject();
+            return;
+        }
+        writer.writeComma();
+        writer.writeDouble(NoteBuffer.DEFAULT_POS_Z);
+        writer.endArray();
+        
+        writer.writeName("scale");
+        writer.writeColon();
+        writeFloatArray(writer, NoteBuffer.DEFAULT_SCALE, NoteBuffer.DEFAULT_SCALE, NoteBuffer.DEFAULT_SCALE);
+        
+        writer.writeName("rotation");
+        writer.writeColon();
+        writeFloatArray(writer, NoteBuffer.DEFAULT_ROTATION, NoteBuffer.DEFAULT_ROTATION, NoteBuffer.DEFAULT_ROTATION);
+        writer.endObject();
+    }
+    
+    private void writeFloatArray(JSONWriter writer, float x, float y, float z) {
+        writer.startArray();
+        writer.writeFloat(x);
+        writer.writeComma();
+        writer.writeFloat(y);
+        writer.writeComma();
+        writer.writeFloat(z);
+        writer.endArray();
+    }
+    
+    private void writeEffect(JSONWriter writer, NewEffect effect, StringTable table) {
+        writer.startObject();
+        writer.writeName("effectType");
+        writer.writeColon();
+        writer.writeString(effect.getEventType());
+        writer.writeName("beat");
+        writer.writeColon();
+        writer.writeDouble(effect.getBeat());
+        writer.writeName("properties");
+        writer.writeColon();
+        writer.writeAny(table != null ? table.encode(effect.getProperties()) : effect.getProperties());
+        writer.endObject();
+    }
+}
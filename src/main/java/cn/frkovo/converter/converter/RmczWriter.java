@@ -0,0 +1,80 @@
+package cn.frkovo.converter.converter;
+
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.model.new_.NewEffect;
+import cn.frkovo.converter.reader.RmczFormat;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a chart as .rmcc deflated with a preset dictionary, see {@link RmczFormat}.
+ * Each file is compressed on its own; the dictionary supplies the JSON that all
+ * charts have in common, so even small charts compress well.
+ */
+public class RmczWriter {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final RmccWriter rmccWriter;
+    private final byte[] dictionary;
+    private final int dictionaryId;
+    
+    public RmczWriter(RmccWriter rmccWriter, byte[] dictionary) {
+        this.rmccWriter = rmccWriter;
+        this.dictionary = dictionary;
+        this.dictionaryId = RmczFormat.dictionaryId(dictionary);
+    }
+    
+    public static RmczWriter load(RmccWriter rmccWriter, Path dictionaryFile) throws IOException {
+        return new RmczWriter(rmccWriter, Files.readAllBytes(dictionaryFile));
+    }
+    
+    public void write(NewChart chart, Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(chart, out);
+        }
+    }
+    
+    public void write(NewChart chart, OutputStream out) throws IOException {
+        writeDeflated(out, deflated -> rmccWriter.write(chart, deflated));
+    }
+    
+    /**
+     * Write a deflated shared effects file, see {@link RmccWriter#writeEffects}
+     */
+    public void writeEffects(List<NewEffect> effects, Map<String, int[]> effectIndex, Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            writeDeflated(out, deflated -> rmccWriter.writeEffects(effects, effectIndex, deflated));
+        }
+    }
+    
+    private interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+    
+    private void writeDeflated(OutputStream out, Content content) throws IOException {
+        DataOutputStream header = new DataOutputStream(out);
+        header.write(RmczFormat.MAGIC);
+        header.writeByte(RmczFormat.VERSION);
+        header.writeInt(dictionaryId);
+        
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setDictionary(dictionary);
+            DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+            content.writeTo(deflated);
+            deflated.finish();  // Leaves out open for the caller
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package cn.frkovo.converter.converter;
+
+import cn.frkovo.converter.model.new_.NewNumEvent;
+import cn.frkovo.converter.model.new_.NoteBuffer;
+import cn.frkovo.converter.model.new_.SpawnIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Works out when each note of a track has to spawn and buckets the notes by spawn tick.
+ * 
+ * A note spawns once it is lookaheadTicks of travel away from its judge beat, where
+ * travel advances at flowSpeed * speed per tick (speed from the track's speed events,
+ * 1.0 outside them). Spawn ticks are on the runtime clock, i.e. shifted by the chart
+ * offset, and clamped to 0. Travel never goes backwards, so spawn ticks follow note order
+ * and each bucket is a contiguous range of note indices.
+ */
+public final class SpawnScheduler {
+    
+    private SpawnScheduler() {}
+    
+    /**
+     * @param notes Notes sorted by beat
+     * @param speedEvents Speed events of the track, sorted and non-overlapping
+     * @param offsetTicks Chart offset in ticks
+     */
+    public static SpawnIndex build(NoteBuffer notes, List<NewNumEvent> speedEvents, float flowSpeed,
+                                   int offsetTicks, int lookaheadTicks, int windowTicks) {
+        Travel travel = new Travel(speedEvents, flowSpeed > 0 ? flowSpeed : 1.0f);
+        
+        int[] spawnTicks = new int[notes.size()];
+        int lastTick = 0;
+        for (int i = 0; i < notes.size(); i++) {
+            double beat = notes.getBeat(i);
+            double spawn = travel.timeAt(travel.positionAt(beat) - lookaheadTicks);
+            // Math.max with the previous tick guards against rounding between equal beats
+            lastTick = Math.max(lastTick, (int) Math.max(0, Math.floor(spawn) + offsetTicks));
+            spawnTicks[i] = lastTick;
+        }
+        
+        int buckets = notes.isEmpty() ? 0 : lastTick / windowTicks + 1;
+        int[] starts = new int[buckets + 1];
+        int note = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            starts[bucket] = note;
+            while (note < spawnTicks.length && spawnTicks[note] / windowTicks == bucket) {
+                note++;
+            }
+        }
+        starts[buckets] = notes.size();
+        return new SpawnIndex(windowTicks, lookaheadTicks, starts);
+    }
+    
+    /**
+     * Travelled distance as a piecewise linear function of time
+     */
+    private static final class Travel {
+        private final double[] times;      // Segment starts, ascending; times[0] = 0
+        private final double[] positions;  // Distance travelled at times[k]
+        private final double[] rates;      // Distance per tick from times[k] on, >= 0
+        
+        Travel(List<NewNumEvent> speedEvents, float flowSpeed) {
+            List<double[]> segments = new ArrayList<>();  // {start, rate}
+            double covered = 0;
+            for (NewNumEvent event : speedEvents) {
+                if (event.getStartBeat() > covered) {
+                    segments.add(new double[]{covered, flowSpeed});
+                }
+                // Eased speed changes are approximated by their average; negative speeds don't move notes back
+                double speed = Math.max(0, (event.getStartValue() + event.getEndValue()) / 2.0);
+                segments.add(new double[]{Math.max(covered, event.getStartBeat()), flowSpeed * speed});
+                covered = Math.max(covered, event.getEndBeat());
+            }
+            segments.add(new double[]{covered, flowSpeed});
+            
+            times = new double[segments.size()];
+            positions = new double[segments.size()];
+            rates = new double[segments.size()];
+            for (int k = 0; k < segments.size(); k++) {
+                times[k] = segments.get(k)[0];
+                rates[k] = segments.get(k)[1];
+                if (k > 0) {
+                    positions[k] = positions[k - 1] + rates[k - 1] * (times[k] - times[k - 1]);
+                }
+            }
+        }
+        
+        double positionAt(double time) {
+            if (time <= 0) {
+                return time * rates[0];
+            }
+            int k = segmentAt(time);
+            return positions[k] + rates[k] * (time - times[k]);
+        }
+        
+        /**
+         * @return The earliest time at which {@code position} is reached
+         */
+        double timeAt(double position) {
+            if (position <= 0) {
+                return rates[0] > 0 ? position / rates[0] : 0;
+            }
+            // Last segment starting below position; it reaches position, since only the last segment is open-ended
+            int lo = 0, hi = positions.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (positions[mid] < position) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return rates[lo] > 0 ? times[lo] + (position - positions[lo]) / rates[lo] : times[lo];
+        }
+        
+        private int segmentAt(double time) {
+            int lo = 0, hi = times.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (times[mid] <= time) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return lo;
+        }
+    }
+}
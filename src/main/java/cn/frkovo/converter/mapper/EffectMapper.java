@@ -0,0 +1,18 @@
+package cn.frkovo.converter.mapper;
+
+import cn.frkovo.converter.model.new_.NewEffect;
+import cn.frkovo.converter.model.old.OldEffect;
+
+/**
+ * Maps effects of one old effect type to the new format
+ */
+@FunctionalInterface
+public interface EffectMapper {
+    
+    /**
+     * @param oldEffect The old effect; fields the model doesn't know are in {@link OldEffect#getExtraFields()}
+     * @param beat Start beat of the effect (tick = beat when BPM = 1200)
+     * @return New effect, or null if the effect should be skipped
+     */
+    NewEffect map(OldEffect oldEffect, double beat);
+}
@@ -0,0 +1,21 @@
+package cn.frkovo.converter.mapper;
+
+import java.util.Map;
+
+/**
+ * Service provider for additional effect types, e.g. the custom effects of a server.
+ * 
+ * Providers are found with {@link java.util.ServiceLoader}: put the implementation on
+ * the classpath and list its class name in
+ * META-INF/services/cn.frkovo.converter.mapper.EffectMapperProvider.
+ * A provided mapper replaces the built-in one for the same type; effects of
+ * that type are then decoded in full, with fields OldEffect has no property
+ * for in OldEffect.getExtraFields().
+ */
+public interface EffectMapperProvider {
+    
+    /**
+     * @return Mappers by old effect type; types match case-insensitively, ignoring whitespace
+     */
+    Map<String, EffectMapper> mappers();
+}
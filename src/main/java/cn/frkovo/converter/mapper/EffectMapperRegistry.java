@@ -0,0 +1,101 @@
+package cn.frkovo.converter.mapper;
+
+import cn.frkovo.converter.model.new_.NewEffect;
+import cn.frkovo.converter.model.old.OldEffect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Effect mappers by old effect type: the built-in ones plus any {@link EffectMapperProvider}s.
+ * 
+ * Each distinct effect-type string is resolved to its mapper once; unknown types
+ * are counted instead of logged per effect. Safe for concurrent use.
+ */
+public class EffectMapperRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(EffectMapperRegistry.class);
+    
+    // Resolution of a type without a mapper
+    private static final EffectMapper UNKNOWN = (oldEffect, beat) -> null;
+    
+    private final Map<String, EffectMapper> mappers = new HashMap<>();  // By normalised type
+    private final Map<String, EffectMapper> resolved = new ConcurrentHashMap<>();  // By raw type string
+    private final Map<String, LongAdder> unknownTypes = new ConcurrentHashMap<>();
+    
+    private static final class DefaultHolder {
+        static final EffectMapperRegistry INSTANCE = load(EffectMapperRegistry.class.getClassLoader());
+    }
+    
+    /**
+     * @return The registry of built-in mappers and the providers on the classpath
+     */
+    public static EffectMapperRegistry getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+    
+    public static EffectMapperRegistry load(ClassLoader classLoader) {
+        EffectMapperRegistry registry = new EffectMapperRegistry();
+        EffectTypeMapper.builtinMappers().forEach((type, mapper) -> registry.mappers.put(OldEffect.normaliseType(type), mapper));
+        for (EffectMapperProvider provider : ServiceLoader.load(EffectMapperProvider.class, classLoader)) {
+            Map<String, EffectMapper> provided = provider.mappers();
+            provided.forEach(registry::register);
+            logger.info("Loaded effect mappers from {}: {}", provider.getClass().getName(), provided.keySet());
+        }
+        return registry;
+    }
+    
+    /**
+     * Register a mapper for an old effect type, replacing any existing one.
+     * Call before charts are parsed; types already resolved keep their mapper.
+     * Effects of the type are decoded in full, since the mapper may read fields
+     * the built-in field table leaves out.
+     */
+    public synchronized void register(String type, EffectMapper mapper) {
+        mappers.put(OldEffect.normaliseType(type), mapper);
+        OldEffect.decodeAllFields(type);
+    }
+    
+    /**
+     * @return New effect, or null if the effect is skipped or its type is unknown
+     */
+    public NewEffect map(OldEffect oldEffect) {
+        if (oldEffect == null || oldEffect.getEffectType() == null) {
+            return null;
+        }
+        
+        String type = oldEffect.getEffectType();
+        EffectMapper mapper = resolved.computeIfAbsent(type, this::resolve);
+        if (mapper == UNKNOWN) {
+            unknownTypes.computeIfAbsent(type, t -> new LongAdder()).increment();
+            return null;
+        }
+        return mapper.map(oldEffect, oldEffect.getStartTick());  // tick = beat when BPM = 1200
+    }
+    
+    private synchronized EffectMapper resolve(String type) {
+        return mappers.getOrDefault(OldEffect.normaliseType(type), UNKNOWN);
+    }
+    
+    /**
+     * @return Occurrences of each unknown effect type so far
+     */
+    public Map<String, Long> getUnknownTypeCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        unknownTypes.forEach((type, count) -> counts.put(type, count.sum()));
+        return counts;
+    }
+    
+    /**
+     * Log one summary line per unknown effect type
+     */
+    public void logUnknownTypes() {
+        getUnknownTypeCounts().forEach((type, count) ->
+                logger.warn("Unknown effect type skipped: {} ({} effects)", type, count));
+    }
+}
@@ -6,7 +6,9 @@ import com.alibaba.fastjson2.JSONObject;
 import cn.frkovo.converter.model.old.OldEffect;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -25,10 +27,13 @@ import java.util.UUID;
  * - COLOR -> GLOW_COLOR
  * - ARENA -> ARENA
  * - VISIBLE -> HIDE_NOTES (logic inverted)
- * - SPEED -> SKIP
+ * - SPEED -> SKIP (compiled into track speed events by ChartConverter)
  * - JUDGEDOT -> SKIP
  * - TEXT -> TEXT_DISPLAY
  * - TRANSFORMATIONS -> TEXT_DISPLAY_EFFECT
+ * 
+ * Types are resolved through {@link EffectMapperRegistry}, which also holds
+ * mappers for custom effect types.
  */
 public class EffectTypeMapper {
     
@@ -43,35 +48,30 @@ public class EffectTypeMapper {
      * @return New effect, or null if the effect should be skipped
      */
     public static NewEffect map(OldEffect oldEffect) {
-        if (oldEffect == null || oldEffect.getEffectType() == null) {
-            return null;
-        }
-        
-        String oldType = oldEffect.getEffectType().toUpperCase();
-        double beat = oldEffect.getStartTick();  // tick = beat when BPM = 1200
-        
-        return switch (oldType) {
-            case "HOLOGRAM" -> mapHologram(oldEffect, beat);
-            case "REMOVEHOLOGRAM" -> mapRemoveHologram(oldEffect, beat);
-            case "INVERT" -> mapInvert(oldEffect, beat);
-            case "MESSAGE" -> mapMessage(oldEffect, beat);
-            case "EFFECT" -> mapEffect(oldEffect, beat);
-            case "CLREFFECT" -> mapClearEffect(oldEffect, beat);
-            case "TIME" -> mapTime(oldEffect, beat);
-            case "WEATHER" -> mapWeather(oldEffect, beat);
-            case "COLOR" -> mapColor(oldEffect, beat);
-            case "ARENA" -> mapArena(oldEffect, beat);
-            case "VISIBLE" -> mapVisible(oldEffect, beat);
-            case "TEXT" -> mapText(oldEffect, beat);
-            case "TRANSFORMATIONS" -> mapTransformations(oldEffect, beat);
-            case "TRAN SFORMATIONS" -> mapTransformations(oldEffect, beat);
-            case "SPEED", "JUDGEDOT" -> null;  // Skip these effects
-            default -> {
-                // Log unknown effect type but don't skip
-                System.err.println("Unknown effect type: " + oldType);
-                yield null;
-            }
-        };
+        return EffectMapperRegistry.getDefault().map(oldEffect);
+    }
+    
+    /**
+     * @return The built-in mappers by old effect type
+     */
+    static Map<String, EffectMapper> builtinMappers() {
+        Map<String, EffectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("HOLOGRAM", EffectTypeMapper::mapHologram);
+        mappers.put("REMOVEHOLOGRAM", EffectTypeMapper::mapRemoveHologram);
+        mappers.put("INVERT", EffectTypeMapper::mapInvert);
+        mappers.put("MESSAGE", EffectTypeMapper::mapMessage);
+        mappers.put("EFFECT", EffectTypeMapper::mapEffect);
+        mappers.put("CLREFFECT", EffectTypeMapper::mapClearEffect);
+        mappers.put("TIME", EffectTypeMapper::mapTime);
+        mappers.put("WEATHER", EffectTypeMapper::mapWeather);
+        mappers.put("COLOR", EffectTypeMapper::mapColor);
+        mappers.put("ARENA", EffectTypeMapper::mapArena);
+        mappers.put("VISIBLE", EffectTypeMapper::mapVisible);
+        mappers.put("TEXT", EffectTypeMapper::mapText);
+        mappers.put("TRANSFORMATIONS", EffectTypeMapper::mapTransformations);
+        mappers.put("SPEED", (oldEffect, beat) -> null);  // Skip these effects
+        mappers.put("JUDGEDOT", (oldEffect, beat) -> null);
+        return mappers;
     }
     
     private static NewEffect mapHologram(OldEffect old, double beat) {
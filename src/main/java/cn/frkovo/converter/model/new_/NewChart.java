@@ -0,0 +1,21 @@
+package cn.frkovo.converter.model.new_;
+
+import com.alibaba.fastjson2.JSONObject;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * New format chart model (one difficulty)
+ */
+@Data
+public class NewChart {
+    private JSONObject meta;
+    private int length;  // song length in beats, end of the default track events
+    private List<NewTrack> tracks = new ArrayList<>();
+    private List<NewEffect> effects = new ArrayList<>();  // sorted by beat
+    private Map<String, int[]> effectIndex;  // effect type -> ascending offsets into effects, null = not written
+    private String effectsFile;  // shared effects file next to the chart holding effects/effectIndex, null = inline
+}
@@ -20,6 +20,7 @@ public class NewNote {
     private float rotationY = 0.0f;
     private float rotationZ = 0.0f;
     private int holdGroup = -1;  // -1 = not part of any hold, >=0 = group ID for HOLD notes
+    private int holdLength = 0;  // Compact HOLD encoding only: length in beats, 0 = one note per tick
     
     public JSONArray toPosArray() {
         JSONArray arr = new JSONArray();
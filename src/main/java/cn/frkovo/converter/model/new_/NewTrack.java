@@ -10,6 +10,14 @@ import java.util.List;
  */
 @Data
 public class NewTrack {
+    // Names and default values of the event lists, in the order of eventLists()
+    public static final String[] EVENT_LIST_NAMES = {
+            "speedEvents", "xTransformEvents", "yTransformEvents", "zTransformEvents",
+            "xRotateEvents", "yRotateEvents", "zRotateEvents",
+            "xScaleEvents", "yScaleEvents", "zScaleEvents"
+    };
+    public static final float[] EVENT_LIST_DEFAULTS = {1.0f, 0.0f, 0.0f, 0.0f, 0.0f, 0.0f, 0.0f, 1.0f, 1.0f, 1.0f};
+    
     private int id;
     private List<NewNumEvent> speedEvents = new ArrayList<>();
     private List<NewNumEvent> xTransformEvents = new ArrayList<>();
@@ -21,5 +29,26 @@ public class NewTrack {
     private List<NewNumEvent> xScaleEvents = new ArrayList<>();
     private List<NewNumEvent> yScaleEvents = new ArrayList<>();
     private List<NewNumEvent> zScaleEvents = new ArrayList<>();
-    private List<NewNote> notes = new ArrayList<>();
+    private NoteBuffer notes = new NoteBuffer();
+    private SpawnIndex spawnIndex;  // null unless requested
+    
+    /**
+     * All event lists in .rmcc order: speed, x/y/z transform, x/y/z rotate, x/y/z scale
+     */
+    public List<List<NewNumEvent>> eventLists() {
+        return List.of(speedEvents, xTransformEvents, yTransformEvents, zTransformEvents,
+                xRotateEvents, yRotateEvents, zRotateEvents, xScaleEvents, yScaleEvents, zScaleEvents);
+    }
+    
+    /**
+     * Give every empty event list its default event over [0, length], as written for omitted lists
+     */
+    public void fillDefaultEvents(int length) {
+        List<List<NewNumEvent>> eventLists = eventLists();
+        for (int i = 0; i < eventLists.size(); i++) {
+            if (eventLists.get(i).isEmpty()) {
+                eventLists.get(i).add(new NewNumEvent(0, length, EVENT_LIST_DEFAULTS[i], EVENT_LIST_DEFAULTS[i], 0));
+            }
+        }
+    }
 }
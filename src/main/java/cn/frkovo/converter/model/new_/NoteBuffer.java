@@ -0,0 +1,288 @@
+package cn.frkovo.converter.model.new_;
+
+import java.util.Arrays;
+
+/**
+ * Columnar (struct-of-arrays) storage for the notes of a track.
+ * 
+ * Converted notes only vary in type, beat, x/y position and hold info;
+ * posZ, scale and rotation are the same for every note and are not stored
+ * per note (see the DEFAULT_* constants).
+ */
+public class NoteBuffer {
+    public static final double DEFAULT_POS_Z = 0.0;
+    public static final float DEFAULT_SCALE = 1.0f;
+    public static final float DEFAULT_ROTATION = 0.0f;
+    
+    private static final int INITIAL_CAPACITY = 64;
+    
+    // Tick buckets are used while the tick range is at most this many buckets per note
+    private static final int MAX_BUCKETS_PER_NOTE = 4;
+    
+    private int size;
+    private int[] types;
+    private double[] beats;
+    private float[] posX;
+    private float[] posY;
+    private int[] holdGroups;   // -1 = not part of any hold
+    private int[] holdLengths;  // Compact HOLD encoding only, 0 otherwise
+    
+    public NoteBuffer() {
+        this(INITIAL_CAPACITY);
+    }
+    
+    public NoteBuffer(int capacity) {
+        capacity = Math.max(capacity, 1);
+        types = new int[capacity];
+        beats = new double[capacity];
+        posX = new float[capacity];
+        posY = new float[capacity];
+        holdGroups = new int[capacity];
+        holdLengths = new int[capacity];
+    }
+    
+    public void add(int type, double beat, float x, float y, int holdGroup, int holdLength) {
+        if (size == types.length) {
+            grow(size + (size >> 1) + 1);
+        }
+        types[size] = type;
+        beats[size] = beat;
+        posX[size] = x;
+        posY[size] = y;
+        holdGroups[size] = holdGroup;
+        holdLengths[size] = holdLength;
+        size++;
+    }
+    
+    /**
+     * Append note {@code index} of another buffer
+     */
+    public void add(NoteBuffer other, int index) {
+        add(other.types[index], other.beats[index], other.posX[index], other.posY[index],
+                other.holdGroups[index], other.holdLengths[index]);
+    }
+    
+    /**
+     * Append all notes of another buffer, shifting its hold group IDs by {@code holdGroupOffset}
+     */
+    public void addAll(NoteBuffer other, int holdGroupOffset) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.types, 0, types, size, other.size);
+        System.arraycopy(other.beats, 0, beats, size, other.size);
+        System.arraycopy(other.posX, 0, posX, size, other.size);
+        System.arraycopy(other.posY, 0, posY, size, other.size);
+        System.arraycopy(other.holdGroups, 0, holdGroups, size, other.size);
+        System.arraycopy(other.holdLengths, 0, holdLengths, size, other.size);
+        if (holdGroupOffset != 0) {
+            for (int i = size; i < size + other.size; i++) {
+                if (holdGroups[i] >= 0) {
+                    holdGroups[i] += holdGroupOffset;
+                }
+            }
+        }
+        size += other.size;
+    }
+    
+    public void ensureCapacity(int capacity) {
+        if (capacity > types.length) {
+            grow(capacity);
+        }
+    }
+    
+    private void grow(int capacity) {
+        types = Arrays.copyOf(types, capacity);
+        beats = Arrays.copyOf(beats, capacity);
+        posX = Arrays.copyOf(posX, capacity);
+        posY = Arrays.copyOf(posY, capacity);
+        holdGroups = Arrays.copyOf(holdGroups, capacity);
+        holdLengths = Arrays.copyOf(holdLengths, capacity);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public int getType(int index) {
+        return types[index];
+    }
+    
+    public double getBeat(int index) {
+        return beats[index];
+    }
+    
+    public float getPosX(int index) {
+        return posX[index];
+    }
+    
+    public float getPosY(int index) {
+        return posY[index];
+    }
+    
+    public int getHoldGroup(int index) {
+        return holdGroups[index];
+    }
+    
+    public int getHoldLength(int index) {
+        return holdLengths[index];
+    }
+    
+    /**
+     * @return Note {@code index} as a standalone object, for callers that want the object model
+     */
+    public NewNote get(int index) {
+        NewNote note = new NewNote();
+        note.setNoteType(types[index]);
+        note.setBeat(beats[index]);
+        note.setPosX(posX[index]);
+        note.setPosY(posY[index]);
+        note.setPosZ(DEFAULT_POS_Z);
+        note.setHoldGroup(holdGroups[index]);
+        note.setHoldLength(holdLengths[index]);
+        return note;
+    }
+    
+    /**
+     * Stable sort by beat: notes on the same beat keep their insertion order.
+     * Converted beats are integer ticks (BPM 1200), so this is normally a linear
+     * counting sort over the tick range; other beats fall back to a merge sort.
+     */
+    public void sortByBeat() {
+        if (isSortedByBeat()) {
+            return;
+        }
+        int[] order = tickBucketOrder();
+        permute(order != null ? order : mergeSortOrder());
+    }
+    
+    /**
+     * Stable counting sort of integer beats
+     * @return The sorted index permutation, or null if a beat isn't an integer or the range is too sparse
+     */
+    private int[] tickBucketOrder() {
+        double min = beats[0];
+        double max = beats[0];
+        for (int i = 0; i < size; i++) {
+            double beat = beats[i];
+            if (beat != Math.rint(beat)) {
+                return null;
+            }
+            min = Math.min(min, beat);
+            max = Math.max(max, beat);
+        }
+        if (max - min >= (double) size * MAX_BUCKETS_PER_NOTE + 1024) {
+            return null;
+        }
+        
+        long base = (long) min;
+        int[] starts = new int[(int) (max - min) + 2];
+        for (int i = 0; i < size; i++) {
+            starts[(int) ((long) beats[i] - base) + 1]++;
+        }
+        for (int bucket = 1; bucket < starts.length; bucket++) {
+            starts[bucket] += starts[bucket - 1];
+        }
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[starts[(int) ((long) beats[i] - base)]++] = i;
+        }
+        return order;
+    }
+    
+    /**
+     * Bottom-up merge sort of an index permutation
+     */
+    private int[] mergeSortOrder() {
+        int[] order = new int[size];
+        int[] buffer = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        for (int width = 1; width < size; width <<= 1) {
+            for (int lo = 0; lo < size - width; lo += width << 1) {
+                int mid = lo + width;
+                int hi = Math.min(lo + (width << 1), size);
+                int left = lo, right = mid, out = lo;
+                while (left < mid && right < hi) {
+                    buffer[out++] = beats[order[right]] < beats[order[left]] ? order[right++] : order[left++];
+                }
+                while (left < mid) {
+                    buffer[out++] = order[left++];
+                }
+                while (right < hi) {
+                    buffer[out++] = order[right++];
+                }
+                System.arraycopy(buffer, lo, order, lo, hi - lo);
+            }
+        }
+        return order;
+    }
+    
+    private boolean isSortedByBeat() {
+        for (int i = 1; i < size; i++) {
+            if (beats[i] < beats[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Reorder all columns so that new position i holds old note order[i]
+     */
+    private void permute(int[] order) {
+        int[] newTypes = new int[types.length];
+        double[] newBeats = new double[beats.length];
+        float[] newPosX = new float[posX.length];
+        float[] newPosY = new float[posY.length];
+        int[] newHoldGroups = new int[holdGroups.length];
+        int[] newHoldLengths = new int[holdLengths.length];
+        for (int i = 0; i < size; i++) {
+            int from = order[i];
+            newTypes[i] = types[from];
+            newBeats[i] = beats[from];
+            newPosX[i] = posX[from];
+            newPosY[i] = posY[from];
+            newHoldGroups[i] = holdGroups[from];
+            newHoldLengths[i] = holdLengths[from];
+        }
+        types = newTypes;
+        beats = newBeats;
+        posX = newPosX;
+        posY = newPosY;
+        holdGroups = newHoldGroups;
+        holdLengths = newHoldLengths;
+    }
+    
+    /**
+     * Equal if both hold the same notes in the same order; spare capacity is ignored
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NoteBuffer other) || size != other.size) {
+            return false;
+        }
+        return Arrays.equals(types, 0, size, other.types, 0, size)
+                && Arrays.equals(beats, 0, size, other.beats, 0, size)
+                && Arrays.equals(posX, 0, size, other.posX, 0, size)
+                && Arrays.equals(posY, 0, size, other.posY, 0, size)
+                && Arrays.equals(holdGroups, 0, size, other.holdGroups, 0, size)
+                && Arrays.equals(holdLengths, 0, size, other.holdLengths, 0, size);
+    }
+    
+    @Override
+    public int hashCode() {
+        int hash = size;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Double.hashCode(beats[i]);
+            hash = 31 * hash + types[i];
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,29 @@
+package cn.frkovo.converter.model.new_;
+
+import lombok.Data;
+
+/**
+ * Precomputed spawn schedule of a track.
+ * 
+ * Notes in bucket k ({@code notes[starts[k]] .. notes[starts[k + 1] - 1]}) spawn during
+ * runtime ticks [k * windowTicks, (k + 1) * windowTicks); starts has one entry per
+ * bucket plus a final entry equal to the note count.
+ */
+@Data
+public class SpawnIndex {
+    private int windowTicks;
+    private int lookaheadTicks;
+    private int[] starts;
+    
+    public SpawnIndex() {}
+    
+    public SpawnIndex(int windowTicks, int lookaheadTicks, int[] starts) {
+        this.windowTicks = windowTicks;
+        this.lookaheadTicks = lookaheadTicks;
+        this.starts = starts;
+    }
+    
+    public int bucketCount() {
+        return starts.length - 1;
+    }
+}
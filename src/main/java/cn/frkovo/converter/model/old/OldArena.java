@@ -1,10 +1,12 @@
 package cn.frkovo.converter.model.old;
 
+import cn.frkovo.converter.util.Utf8FileInput;
 import lombok.Data;
 import org.yaml.snakeyaml.Yaml;
 
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Map;
 
 /**
@@ -22,7 +24,7 @@ public class OldArena {
     
     public static OldArena fromFile(String filePath) throws IOException {
         Yaml yaml = new Yaml();
-        try (FileReader reader = new FileReader(filePath)) {
+        try (InputStream reader = Utf8FileInput.openStream(Path.of(filePath))) {
             Map<String, Object> data = yaml.load(reader);
             
             OldArena arena = new OldArena();
@@ -1,12 +1,13 @@
 package cn.frkovo.converter.model.old;
 
+import cn.frkovo.converter.util.Utf8FileInput;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONReader;
 import lombok.Data;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -19,10 +20,79 @@ public class OldChart {
     private List<OldFrame> frames;
     private List<OldEffect> effects;
     
+    /**
+     * Parse a chart file by streaming tokens straight into the model.
+     * Unlike {@link #fromJson(JSONObject)} no intermediate JSONObject tree is built,
+     * and the file is parsed from its UTF-8 bytes without decoding it to a String.
+     */
     public static OldChart fromFile(File file) throws IOException {
-        String content = Files.readString(file.toPath());
-        JSONObject json = JSONObject.parseObject(content);
+        return Utf8FileInput.parseJson(file.toPath(), OldChart::fromReader);
+    }
+    
+    /**
+     * Read only the meta section of a chart file, skipping frames and effects
+     * @return The meta, or null if the chart has none
+     */
+    public static OldChartMeta readMeta(File file) throws IOException {
+        return Utf8FileInput.parseJson(file.toPath(), reader -> {
+            reader.nextIfObjectStart();
+            while (!reader.nextIfObjectEnd()) {
+                if ("meta".equals(reader.readFieldName()) && reader.isObject()) {
+                    return OldChartMeta.fromJson(new JSONObject(reader.readObject()));
+                }
+                reader.skipValue();
+            }
+            return null;
+        });
+    }
+    
+    public static OldChart fromReader(JSONReader reader) {
+        OldChart chart = new OldChart();
+        List<OldFrame> frames = new ArrayList<>();
+        List<OldEffect> effects = new ArrayList<>();
         
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            switch (reader.readFieldName()) {
+                case "meta" -> {
+                    // Meta is tiny, reuse the tree based conversion
+                    if (reader.isObject()) {
+                        chart.setMeta(OldChartMeta.fromJson(new JSONObject(reader.readObject())));
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                case "frames" -> {
+                    if (reader.nextIfArrayStart()) {
+                        while (!reader.nextIfArrayEnd()) {
+                            frames.add(OldFrame.fromReader(reader));
+                        }
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                case "effects" -> {
+                    if (reader.nextIfArrayStart()) {
+                        while (!reader.nextIfArrayEnd()) {
+                            effects.add(OldEffect.fromReader(reader));
+                        }
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                default -> reader.skipValue();
+            }
+        }
+        
+        chart.setFrames(frames);
+        chart.setEffects(effects);
+        return chart;
+    }
+    
+    /**
+     * Convert an already parsed JSONObject tree
+     */
+    public static OldChart fromJson(JSONObject json) {
         OldChart chart = new OldChart();
         
         // Parse meta
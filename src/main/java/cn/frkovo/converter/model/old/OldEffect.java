@@ -1,20 +1,31 @@
 package cn.frkovo.converter.model.old;
 
+import cn.frkovo.converter.util.JsonReaders;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONReader;
 import lombok.Data;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Old format effect model
+ * 
+ * Only the fields used by the effect's type are decoded (see FIELDS_BY_TYPE);
+ * the others stay null, and no parse tree is kept for the effect. Types without
+ * a field table (e.g. custom effects of a server) decode every field and keep
+ * the ones this model doesn't know in extraFields. So do built-in types whose
+ * mapper was replaced by a custom one (see decodeAllFields).
  */
 @Data
 public class OldEffect {
     private long startTick;
     private String effectType;
-    private JSONObject rawData;  // Store raw data for property extraction
     
     // Common properties
     private Integer duration;
@@ -63,63 +74,258 @@ public class OldEffect {
     private Boolean glowing;
     private JSONArray backgroundColor;
     
+    // Unknown fields of types without a field table, for custom effect mappers
+    private JSONObject extraFields;
+    
+    // Old JSON fields read by each effect type, keyed by the normalised type name
+    private static final Map<String, Set<String>> FIELDS_BY_TYPE = Map.ofEntries(
+            Map.entry("HOLOGRAM", Set.of("duration", "hologram-contents", "hologram-loc", "id")),
+            Map.entry("REMOVEHOLOGRAM", Set.of("id")),
+            Map.entry("INVERT", Set.of("duration")),
+            Map.entry("MESSAGE", Set.of("contents")),
+            Map.entry("EFFECT", Set.of("effect-id", "amplifier", "duration")),
+            Map.entry("CLREFFECT", Set.of("effect-id")),
+            Map.entry("TIME", Set.of("time", "duration")),
+            Map.entry("WEATHER", Set.of("weather")),
+            Map.entry("COLOR", Set.of("color")),
+            Map.entry("ARENA", Set.of("arena")),
+            Map.entry("SPEED", Set.of("speed")),
+            Map.entry("JUDGEDOT", Set.of()),
+            Map.entry("VISIBLE", Set.of("visible", "note-types")),
+            Map.entry("TEXT", Set.of("id", "loc", "content")),
+            Map.entry("TRANSFORMATIONS", Set.of("id", "type", "to", "scale", "rotate", "shadow", "glowing", "color", "content", "duration"))
+    );
+    
+    // Types decoded in full despite their field table, because a custom mapper handles them
+    private static final Set<String> FULLY_DECODED_TYPES = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * @return The old JSON fields the given effect type reads, or null if every field is decoded
+     */
+    public static Set<String> fieldsOf(String effectType) {
+        if (effectType == null) {
+            return Set.of();
+        }
+        String type = normaliseType(effectType);
+        return FULLY_DECODED_TYPES.contains(type) ? null : FIELDS_BY_TYPE.get(type);
+    }
+    
+    /**
+     * Decode every field of an effect type from now on, keeping unknown ones in extraFields.
+     * Used when a custom mapper replaces the built-in one and may read other fields.
+     */
+    public static void decodeAllFields(String effectType) {
+        FULLY_DECODED_TYPES.add(normaliseType(effectType));
+    }
+    
+    /**
+     * Upper case without whitespace; some charts have stray spaces in the type, e.g. "TRAN SFORMATIONS"
+     */
+    public static String normaliseType(String effectType) {
+        return effectType.toUpperCase(Locale.ROOT).replaceAll("\\s", "");
+    }
+    
     public static OldEffect fromJson(JSONObject json) {
         OldEffect effect = new OldEffect();
         effect.setStartTick(json.getLongValue("start-tick"));
         effect.setEffectType(json.getString("effect-type"));
-        effect.setRawData(json);
-        
-        // Common properties
-        effect.setDuration(json.getInteger("duration"));
         
-        // HOLOGRAM properties
-        effect.setHologramContents(json.getList("hologram-contents", String.class));
-        effect.setHologramLoc(json.getJSONArray("hologram-loc"));
-        effect.setId(json.getString("id"));
-        
-        // MESSAGE properties
-        effect.setContents(json.getList("contents", String.class));
-        
-        // EFFECT properties
-        effect.setEffectId(json.getString("effect-id"));
-        effect.setAmplifier(json.getInteger("amplifier"));
-        
-        // TIME properties
-        effect.setTime(json.getLong("time"));
-        
-        // WEATHER properties
-        effect.setWeather(json.getString("weather"));
-        
-        // COLOR properties
-        effect.setColor(json.getString("color"));
-        
-        // ARENA properties
-        effect.setArena(json.getString("arena"));
-        
-        // SPEED properties
-        effect.setSpeed(json.getFloat("speed"));
-        
-        // VISIBLE properties
-        effect.setVisible(json.getBoolean("visible"));
-        effect.setNoteTypes(json.getList("note-types", String.class));
-        
-        // TEXT properties
-        effect.setLoc(json.getJSONArray("loc"));
-        effect.setContent(json.getString("content"));
+        Set<String> fields = fieldsOf(effect.getEffectType());
+        for (String field : fields != null ? fields : json.keySet()) {
+            if (!json.containsKey(field) || field.equals("start-tick") || field.equals("effect-type")) {
+                continue;
+            }
+            if (!readField(effect, field, json)) {
+                effect.putExtraField(field, json.get(field));
+            }
+        }
+        effect.fixColor();
+        return effect;
+    }
+    
+    /**
+     * Decode one field from the effect's JSONObject
+     * @return false if the field is unknown
+     */
+    private static boolean readField(OldEffect effect, String field, JSONObject json) {
+        switch (field) {
+            case "duration" -> effect.setDuration(json.getInteger(field));
+            case "hologram-contents" -> effect.setHologramContents(json.getList(field, String.class));
+            case "hologram-loc" -> effect.setHologramLoc(json.getJSONArray(field));
+            case "id" -> effect.setId(json.getString(field));
+            case "contents" -> effect.setContents(json.getList(field, String.class));
+            case "effect-id" -> effect.setEffectId(json.getString(field));
+            case "amplifier" -> effect.setAmplifier(json.getInteger(field));
+            case "time" -> effect.setTime(json.getLong(field));
+            case "weather" -> effect.setWeather(json.getString(field));
+            case "color" -> {
+                // COLOR uses a string, TRANSFORMATIONS uses an array (background color)
+                if (json.get(field) instanceof JSONArray colorArray) {
+                    effect.setBackgroundColor(colorArray);
+                } else {
+                    effect.setColor(json.getString(field));
+                }
+            }
+            case "arena" -> effect.setArena(json.getString(field));
+            case "speed" -> effect.setSpeed(json.getFloat(field));
+            case "visible" -> effect.setVisible(json.getBoolean(field));
+            case "note-types" -> effect.setNoteTypes(json.getList(field, String.class));
+            case "loc" -> effect.setLoc(json.getJSONArray(field));
+            case "content" -> effect.setContent(json.getString(field));
+            case "type" -> effect.setType(json.getString(field));
+            case "to" -> effect.setTo(json.getJSONArray(field));
+            case "scale" -> effect.setScale(json.getFloat(field));
+            case "rotate" -> effect.setRotate(json.getDouble(field));
+            case "shadow" -> effect.setShadow(json.getBoolean(field));
+            case "glowing" -> effect.setGlowing(json.getBoolean(field));
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Streaming counterpart of {@link #fromJson(JSONObject)}.
+     * Fields after "effect-type" that its type doesn't use are skipped without decoding;
+     * fields before it are decoded and dropped again once the type is known.
+     */
+    public static OldEffect fromReader(JSONReader reader) {
+        OldEffect effect = new OldEffect();
+        Set<String> fields = null;  // null = decode everything: type not read yet, or no field table
+        List<String> readEarly = null;
         
-        // TRANSFORMATIONS properties
-        effect.setType(json.getString("type"));
-        effect.setTo(json.getJSONArray("to"));
-        effect.setScale(json.getFloat("scale"));
-        effect.setRotate(json.getDouble("rotate"));
-        effect.setShadow(json.getBoolean("shadow"));
-        effect.setGlowing(json.getBoolean("glowing"));
-        // For TRANSFORMATIONS type, color is an array (background color)
-        // For COLOR type, color is a string (already set above)
-        if ("TRANSFORMATIONS".equals(effect.getEffectType())) {
-            effect.setBackgroundColor(json.getJSONArray("color"));
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            String field = reader.readFieldName();
+            switch (field) {
+                case "start-tick" -> effect.setStartTick(reader.nextIfNull() ? 0 : reader.readInt64Value());
+                case "effect-type" -> {
+                    effect.setEffectType(reader.readString());
+                    fields = fieldsOf(effect.getEffectType());
+                }
+                default -> {
+                    if (fields != null) {
+                        if (fields.contains(field)) {
+                            readField(effect, field, reader);
+                        } else {
+                            reader.skipValue();
+                        }
+                    } else {
+                        if (!readField(effect, field, reader)) {
+                            effect.putExtraField(field, reader.readAny());
+                        }
+                        if (effect.getEffectType() == null) {
+                            if (readEarly == null) {
+                                readEarly = new ArrayList<>();
+                            }
+                            readEarly.add(field);
+                        }
+                    }
+                }
+            }
         }
         
+        // Drop what was read before the type turned out to have a field table
+        Set<String> used = fieldsOf(effect.getEffectType());
+        if (readEarly != null && used != null) {
+            for (String field : readEarly) {
+                if (!used.contains(field)) {
+                    effect.clearField(field);
+                }
+            }
+            effect.setExtraFields(null);
+        }
+        effect.fixColor();
         return effect;
     }
+    
+    /**
+     * Decode one field into the effect
+     * @return false if the field is unknown; its value is not consumed then
+     */
+    private static boolean readField(OldEffect effect, String field, JSONReader reader) {
+        switch (field) {
+            case "duration" -> effect.setDuration(JsonReaders.readInteger(reader));
+            case "hologram-contents" -> effect.setHologramContents(JsonReaders.readStringList(reader));
+            case "hologram-loc" -> effect.setHologramLoc(JsonReaders.readArray(reader));
+            case "id" -> effect.setId(reader.readString());
+            case "contents" -> effect.setContents(JsonReaders.readStringList(reader));
+            case "effect-id" -> effect.setEffectId(reader.readString());
+            case "amplifier" -> effect.setAmplifier(JsonReaders.readInteger(reader));
+            case "time" -> effect.setTime(JsonReaders.readLong(reader));
+            case "weather" -> effect.setWeather(reader.readString());
+            case "color" -> {
+                // COLOR uses a string, TRANSFORMATIONS uses an array (background color)
+                if (reader.isArray()) {
+                    effect.setBackgroundColor(JsonReaders.readArray(reader));
+                } else {
+                    effect.setColor(reader.readString());
+                }
+            }
+            case "arena" -> effect.setArena(reader.readString());
+            case "speed" -> effect.setSpeed(JsonReaders.readFloat(reader));
+            case "visible" -> effect.setVisible(JsonReaders.readBoolean(reader));
+            case "note-types" -> effect.setNoteTypes(JsonReaders.readStringList(reader));
+            case "loc" -> effect.setLoc(JsonReaders.readArray(reader));
+            case "content" -> effect.setContent(reader.readString());
+            case "type" -> effect.setType(reader.readString());
+            case "to" -> effect.setTo(JsonReaders.readArray(reader));
+            case "scale" -> effect.setScale(JsonReaders.readFloat(reader));
+            case "rotate" -> effect.setRotate(JsonReaders.readDouble(reader));
+            case "shadow" -> effect.setShadow(JsonReaders.readBoolean(reader));
+            case "glowing" -> effect.setGlowing(JsonReaders.readBoolean(reader));
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void putExtraField(String field, Object value) {
+        if (extraFields == null) {
+            extraFields = new JSONObject();
+        }
+        extraFields.put(field, value);
+    }
+    
+    private void clearField(String field) {
+        switch (field) {
+            case "duration" -> duration = null;
+            case "hologram-contents" -> hologramContents = null;
+            case "hologram-loc" -> hologramLoc = null;
+            case "id" -> id = null;
+            case "contents" -> contents = null;
+            case "effect-id" -> effectId = null;
+            case "amplifier" -> amplifier = null;
+            case "time" -> time = null;
+            case "weather" -> weather = null;
+            case "color" -> {
+                color = null;
+                backgroundColor = null;
+            }
+            case "arena" -> arena = null;
+            case "speed" -> speed = null;
+            case "visible" -> visible = null;
+            case "note-types" -> noteTypes = null;
+            case "loc" -> loc = null;
+            case "content" -> content = null;
+            case "type" -> type = null;
+            case "to" -> to = null;
+            case "scale" -> scale = null;
+            case "rotate" -> rotate = null;
+            case "shadow" -> shadow = null;
+            case "glowing" -> glowing = null;
+        }
+    }
+    
+    /**
+     * An array color is only a background color for TRANSFORMATIONS; other types keep it as a string
+     */
+    private void fixColor() {
+        if (backgroundColor != null && !"TRANSFORMATIONS".equals(effectType)) {
+            color = backgroundColor.toString();
+            backgroundColor = null;
+        }
+    }
 }
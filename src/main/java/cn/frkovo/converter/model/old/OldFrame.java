@@ -2,6 +2,7 @@ package cn.frkovo.converter.model.old;
 
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONReader;
 import lombok.Data;
 
 import java.util.ArrayList;
@@ -29,4 +30,28 @@ public class OldFrame {
         frame.setNotes(notes);
         return frame;
     }
+    
+    public static OldFrame fromReader(JSONReader reader) {
+        OldFrame frame = new OldFrame();
+        List<OldNote> notes = new ArrayList<>();
+        
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            switch (reader.readFieldName()) {
+                case "judge-tick" -> frame.setJudgeTick(reader.nextIfNull() ? 0 : reader.readInt64Value());
+                case "notes" -> {
+                    if (reader.nextIfArrayStart()) {
+                        while (!reader.nextIfArrayEnd()) {
+                            notes.add(OldNote.fromReader(reader));
+                        }
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                default -> reader.skipValue();
+            }
+        }
+        frame.setNotes(notes);
+        return frame;
+    }
 }
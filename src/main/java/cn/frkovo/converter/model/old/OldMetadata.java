@@ -1,11 +1,13 @@
 package cn.frkovo.converter.model.old;
 
+import cn.frkovo.converter.util.Utf8FileInput;
 import lombok.Data;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.LoaderOptions;
 
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Map;
 
 /**
@@ -25,7 +27,8 @@ public class OldMetadata {
         LoaderOptions options = new LoaderOptions();
         options.setAllowDuplicateKeys(false);
         Yaml yaml = new Yaml(options);
-        try (FileReader reader = new FileReader(filePath)) {
+        // Raw bytes: SnakeYAML detects the encoding (UTF-8 unless there's a BOM)
+        try (InputStream reader = Utf8FileInput.openStream(Path.of(filePath))) {
             // 使用Map来加载，避免未知属性报错
             Map<String, Object> data = yaml.load(reader);
             OldMetadata metadata = new OldMetadata();
@@ -1,7 +1,9 @@
 package cn.frkovo.converter.model.old;
 
+import cn.frkovo.converter.util.JsonReaders;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONReader;
 import lombok.Data;
 
 import java.util.Objects;
@@ -33,4 +35,47 @@ public class OldNote {
         note.setLength(json.getInteger("length"));
         return note;
     }
+    
+    public static OldNote fromReader(JSONReader reader) {
+        OldNote note = new OldNote();
+        // "type" may come after "pos", so keep both shapes until the object is done
+        float holdPos = 0;
+        float[] pos = null;
+        
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            switch (reader.readFieldName()) {
+                case "type" -> note.setType(reader.readString());
+                case "pos" -> {
+                    if (reader.nextIfArrayStart()) {
+                        float[] values = new float[2];
+                        int count = 0;
+                        while (!reader.nextIfArrayEnd()) {
+                            float value = reader.readFloatValue();
+                            if (count < values.length) {
+                                values[count] = value;
+                            }
+                            count++;
+                        }
+                        pos = count >= 2 ? values : null;
+                    } else if (reader.isNumber()) {
+                        holdPos = reader.readFloatValue();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                case "length" -> note.setLength(JsonReaders.readInteger(reader));
+                default -> reader.skipValue();
+            }
+        }
+        
+        if (Objects.equals(note.getType(), "NOTE_HOLD")) {
+            note.setPosX(holdPos);
+            note.setPosY(-1);
+        } else if (pos != null) {
+            note.setPosX(pos[0]);
+            note.setPosY(pos[1]);
+        }
+        return note;
+    }
 }
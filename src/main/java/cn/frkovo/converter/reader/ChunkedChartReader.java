@@ -0,0 +1,144 @@
+package cn.frkovo.converter.reader;
+
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.model.new_.NewTrack;
+import cn.frkovo.converter.util.Utf8FileInput;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads chunked chart output (see {@link ChunkedFormat}).
+ * 
+ * A loader reads the index, then the chunks it needs, in order: e.g. the first
+ * one before the song starts and the rest in the background.
+ */
+public class ChunkedChartReader {
+    
+    private final RmccReader rmccReader = new RmccReader();
+    
+    /**
+     * One beat window of the chart
+     */
+    public record Chunk(String file, double startBeat, double endBeat, int notes, int effects) {
+    }
+    
+    /**
+     * Everything but the notes and effects; tracks have their events and no notes
+     */
+    public record Index(JSONObject meta, int length, int windowBeats, boolean effectIndex,
+                        List<NewTrack> tracks, List<Chunk> chunks) {
+    }
+    
+    public Index readIndex(Path directory) throws IOException {
+        Index index = Utf8FileInput.parseJson(directory.resolve(ChunkedFormat.INDEX_FILE), this::readIndex);
+        if (index == null) {
+            throw new IOException("Unsupported chunked chart version: " + directory);
+        }
+        return index;
+    }
+    
+    private Index readIndex(JSONReader reader) {
+        JSONObject meta = null;
+        int length = 0;
+        int windowBeats = 0;
+        boolean effectIndex = false;
+        int version = 0;
+        List<NewTrack> tracks = new ArrayList<>();
+        List<Chunk> chunks = new ArrayList<>();
+        
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            switch (reader.readFieldName()) {
+                case "version" -> version = reader.readInt32Value();
+                case "meta" -> meta = rmccReader.readObject(reader);
+                case "length" -> length = reader.readInt32Value();
+                case "windowBeats" -> windowBeats = reader.readInt32Value();
+                case "effectIndex" -> effectIndex = reader.readBoolValue();
+                case "tracks" -> {
+                    reader.nextIfArrayStart();
+                    while (!reader.nextIfArrayEnd()) {
+                        tracks.add(rmccReader.readTrack(reader));
+                    }
+                }
+                case "chunks" -> {
+                    reader.nextIfArrayStart();
+                    while (!reader.nextIfArrayEnd()) {
+                        chunks.add(readChunkEntry(reader));
+                    }
+                }
+                default -> reader.skipValue();
+            }
+        }
+        if (version != ChunkedFormat.VERSION) {
+            return null;
+        }
+        for (NewTrack track : tracks) {
+            track.fillDefaultEvents(length);  // Omitted in compact mode
+        }
+        return new Index(meta, length, windowBeats, effectIndex, tracks, chunks);
+    }
+    
+    private Chunk readChunkEntry(JSONReader reader) {
+        String file = null;
+        double startBeat = 0;
+        double endBeat = 0;
+        int notes = 0;
+        int effects = 0;
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            switch (reader.readFieldName()) {
+                case "file" -> file = reader.readString();
+                case "startBeat" -> startBeat = reader.readDoubleValue();
+                case "endBeat" -> endBeat = reader.readDoubleValue();
+                case "notes" -> notes = reader.readInt32Value();
+                case "effects" -> effects = reader.readInt32Value();
+                default -> reader.skipValue();
+            }
+        }
+        return new Chunk(file, startBeat, endBeat, notes, effects);
+    }
+    
+    /**
+     * @return The notes and effects of one window as a partial chart (tracks hold only id and notes)
+     */
+    public NewChart readChunk(Path directory, Chunk chunk) throws IOException {
+        return rmccReader.read(directory.resolve(chunk.file()));
+    }
+    
+    /**
+     * Read the whole chart, equivalent to reading the .rmcc of the same difficulty
+     */
+    public NewChart read(Path directory) throws IOException {
+        Index index = readIndex(directory);
+        NewChart chart = new NewChart();
+        chart.setMeta(index.meta());
+        chart.setLength(index.length());
+        chart.setTracks(index.tracks());
+        
+        Map<Integer, NewTrack> tracksById = new HashMap<>();
+        for (NewTrack track : index.tracks()) {
+            tracksById.put(track.getId(), track);
+        }
+        for (Chunk chunk : index.chunks()) {
+            NewChart part = readChunk(directory, chunk);
+            for (NewTrack partTrack : part.getTracks()) {
+                NewTrack track = tracksById.get(partTrack.getId());
+                if (track != null) {
+                    track.getNotes().addAll(partTrack.getNotes(), 0);
+                }
+            }
+            chart.getEffects().addAll(part.getEffects());
+        }
+        if (index.effectIndex()) {
+            chart.setEffectIndex(EffectIndex.build(chart.getEffects()));
+        }
+        return chart;
+    }
+}
@@ -0,0 +1,31 @@
+package cn.frkovo.converter.reader;
+
+/**
+ * Constants of the chunked chart output, a directory per difficulty for lazy loading.
+ * 
+ * Layout:
+ * <pre>
+ * &lt;difficulty&gt;.chunks/
+ *   index.json     version, meta, length, windowBeats, effectIndex (optional, true),
+ *                  tracks (id and event lists, no notes),
+ *                  chunks: [{file, startBeat, endBeat, notes, effects}] in beat order
+ *   chunk-N.rmcc   {"tracks": [{"id", "notes"}], "strings": [...] (string table mode), "effects": [...]}
+ * </pre>
+ * Chunk N holds the notes and effects with beats in [N * windowBeats, (N + 1) * windowBeats);
+ * windows without any notes or effects have no chunk. A compact HOLD lives in the chunk
+ * of its head even if its tail is in a later window. Chunk files use the .rmcc layout,
+ * so {@link RmccReader} reads them as a partial chart. The effectIndex isn't stored;
+ * "effectIndex": true asks for it to be rebuilt over the assembled effects.
+ */
+public final class ChunkedFormat {
+    public static final int VERSION = 1;
+    
+    public static final String DIRECTORY_SUFFIX = ".chunks";
+    public static final String INDEX_FILE = "index.json";
+    
+    private ChunkedFormat() {}
+    
+    public static String chunkFile(int window) {
+        return "chunk-" + window + ".rmcc";
+    }
+}
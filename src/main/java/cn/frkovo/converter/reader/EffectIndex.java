@@ -0,0 +1,60 @@
+package cn.frkovo.converter.reader;
+
+import cn.frkovo.converter.model.new_.NewEffect;
+import com.alibaba.fastjson2.JSONArray;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds the effectIndex of a chart: offsets of each effect type's effects in the
+ * beat-sorted effect list, so a reader can binary-search one type by beat.
+ * 
+ * Formats that don't store the index (.rmcb, chunked) rebuild it with this on read.
+ */
+public final class EffectIndex {
+    
+    // Effects sharing a beat grouped into one record, see EffectBatcher
+    public static final String BATCH_TYPE = "BATCH";
+    public static final String BATCH_EFFECTS_KEY = "effects";
+    
+    private EffectIndex() {}
+    
+    /**
+     * @param effects Effects sorted by beat
+     * @return Effect type -> ascending offsets, types sorted; types inside a BATCH point at the batch
+     */
+    public static Map<String, int[]> build(List<NewEffect> effects) {
+        Map<String, List<Integer>> offsets = new TreeMap<>();
+        for (int i = 0; i < effects.size(); i++) {
+            NewEffect effect = effects.get(i);
+            if (!BATCH_TYPE.equals(effect.getEventType())) {
+                offsets.computeIfAbsent(effect.getEventType(), type -> new ArrayList<>()).add(i);
+                continue;
+            }
+            // A batch is listed once under each type it contains
+            for (String type : new LinkedHashSet<>(typesOf(effect))) {
+                offsets.computeIfAbsent(type, t -> new ArrayList<>()).add(i);
+            }
+        }
+        Map<String, int[]> index = new LinkedHashMap<>();
+        offsets.forEach((type, list) -> index.put(type, list.stream().mapToInt(Integer::intValue).toArray()));
+        return index;
+    }
+    
+    /**
+     * @return The effect types inside a batch record, in order
+     */
+    public static List<String> typesOf(NewEffect batch) {
+        JSONArray entries = batch.getProperties().getJSONArray(BATCH_EFFECTS_KEY);
+        List<String> types = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            types.add(entries.getJSONObject(i).getString("effectType"));
+        }
+        return types;
+    }
+}
@@ -0,0 +1,52 @@
+package cn.frkovo.converter.reader;
+
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.model.new_.NewTrack;
+import cn.frkovo.converter.model.new_.NoteBuffer;
+
+/**
+ * Expands compact HOLD notes (one head note with holdLength) back into
+ * the per-tick form: holdLength + 1 notes sharing the same holdGroup.
+ */
+public class HoldExpander {
+    
+    private HoldExpander() {}
+    
+    /**
+     * Expand every track of a chart in place
+     */
+    public static void expand(NewChart chart) {
+        for (NewTrack track : chart.getTracks()) {
+            track.setNotes(expand(track.getNotes()));
+        }
+        if (chart.getMeta() != null) {
+            chart.getMeta().remove("holdEncoding");
+        }
+    }
+    
+    /**
+     * @return Per-tick notes sorted by beat; notes without holdLength are kept as they are
+     */
+    public static NoteBuffer expand(NoteBuffer notes) {
+        int expandedSize = 0;
+        for (int i = 0; i < notes.size(); i++) {
+            expandedSize += notes.getHoldLength(i) + 1;
+        }
+        
+        NoteBuffer result = new NoteBuffer(expandedSize);
+        for (int i = 0; i < notes.size(); i++) {
+            int holdLength = notes.getHoldLength(i);
+            if (holdLength <= 0) {
+                result.add(notes, i);
+                continue;
+            }
+            for (int tick = 0; tick <= holdLength; tick++) {
+                // 1 tick = 1 beat
+                result.add(notes.getType(i), notes.getBeat(i) + tick, notes.getPosX(i), notes.getPosY(i),
+                        notes.getHoldGroup(i), 0);
+            }
+        }
+        result.sortByBeat();
+        return result;
+    }
+}
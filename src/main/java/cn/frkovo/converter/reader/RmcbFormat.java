@@ -0,0 +1,55 @@
+package cn.frkovo.converter.reader;
+
+/**
+ * Constants of the binary chart format (.rmcb).
+ * 
+ * Layout (all integers are unsigned LEB128 varints unless noted,
+ * "zigzag" means zigzag-encoded signed varint):
+ * <pre>
+ * magic "RMCB", version, flags
+ * string table: count, then (byteLength, UTF-8 bytes) per string
+ * meta: value (see below)
+ * length
+ * tracks: count, then per track:
+ *   id (zigzag)
+ *   10 event lists in .rmcc order: 0 = default event over [0, length],
+ *     otherwise count + 1 followed by (startBeat, endBeat, startValue, endValue as float64, easing)
+ *   notes: count, beat encoding, then columns:
+ *     types (1 byte each), beats, posX (float32 each), posY (float32 each),
+ *     holdGroup + 1 (varint each), holdLength (varint each)
+ * effects: count, beat encoding, beats, then per effect: type (string index), properties (value)
+ * </pre>
+ * Flags: FLAG_EFFECT_INDEX asks the reader to rebuild the effectIndex, which isn't stored.
+ * Not kept at all: the SpawnIndex of tracks and the chart's effectsFile
+ * (effects are always stored inline, even when the .rmcc shares them).
+ * Beats are either integer tick deltas from the previous beat (zigzag, BEATS_DELTA)
+ * or raw float64 values (BEATS_RAW) when any beat is fractional.
+ * Floating point values are big-endian.
+ */
+public final class RmcbFormat {
+    public static final byte[] MAGIC = {'R', 'M', 'C', 'B'};
+    public static final int VERSION = 2;  // 2 added TAG_LONG; version 1 files are still read
+    
+    public static final int FLAG_EFFECT_INDEX = 1;
+    
+    public static final int BEATS_DELTA = 0;
+    public static final int BEATS_RAW = 1;
+    
+    // Event list marker meaning "one default event spanning the whole song"
+    public static final int DEFAULT_EVENTS = 0;
+    
+    // Value tags
+    public static final int TAG_NULL = 0;
+    public static final int TAG_FALSE = 1;
+    public static final int TAG_TRUE = 2;
+    public static final int TAG_INT = 3;       // zigzag varint, decoded as Integer (Long if it doesn't fit, version 1)
+    public static final int TAG_FLOAT = 4;     // float32
+    public static final int TAG_DOUBLE = 5;    // float64
+    public static final int TAG_DECIMAL = 6;   // string index of the plain decimal text
+    public static final int TAG_STRING = 7;    // string index
+    public static final int TAG_ARRAY = 8;     // count, values
+    public static final int TAG_OBJECT = 9;    // count, (key string index, value) pairs
+    public static final int TAG_LONG = 10;     // zigzag varint, decoded as Long
+    
+    private RmcbFormat() {}
+}
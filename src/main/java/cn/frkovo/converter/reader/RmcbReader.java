@@ -0,0 +1,187 @@
+package cn.frkovo.converter.reader;
+
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.model.new_.NewEffect;
+import cn.frkovo.converter.model.new_.NewNumEvent;
+import cn.frkovo.converter.model.new_.NewTrack;
+import cn.frkovo.converter.model.new_.NoteBuffer;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the binary .rmcb chart format into the new chart model.
+ * Default track events are materialised, so the result matches what
+ * {@link RmccReader} returns for the equivalent .rmcc file.
+ */
+public class RmcbReader {
+    
+    public NewChart read(Path file) throws IOException {
+        // Decode straight from the mapped file
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    public NewChart read(ByteBuffer buffer) throws IOException {
+        byte[] magic = new byte[RmcbFormat.MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, RmcbFormat.MAGIC)) {
+            throw new IOException("Not an .rmcb chart");
+        }
+        int version = (int) varint(buffer);
+        if (version < 1 || version > RmcbFormat.VERSION) {
+            throw new IOException("Unsupported .rmcb version: " + version);
+        }
+        long flags = varint(buffer);
+        
+        String[] strings = new String[(int) varint(buffer)];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[(int) varint(buffer)];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        
+        NewChart chart = new NewChart();
+        chart.setMeta((JSONObject) value(buffer, strings));
+        chart.setLength((int) varint(buffer));
+        
+        int trackCount = (int) varint(buffer);
+        for (int i = 0; i < trackCount; i++) {
+            chart.getTracks().add(readTrack(buffer, chart.getLength()));
+        }
+        
+        int effectCount = (int) varint(buffer);
+        double[] beats = beats(buffer, effectCount);
+        for (int i = 0; i < effectCount; i++) {
+            String type = strings[(int) varint(buffer)];
+            JSONObject properties = (JSONObject) value(buffer, strings);
+            chart.getEffects().add(new NewEffect(type, beats[i], properties));
+        }
+        if ((flags & RmcbFormat.FLAG_EFFECT_INDEX) != 0) {
+            chart.setEffectIndex(EffectIndex.build(chart.getEffects()));
+        }
+        return chart;
+    }
+    
+    private NewTrack readTrack(ByteBuffer buffer, int length) {
+        NewTrack track = new NewTrack();
+        track.setId((int) zigzag(buffer));
+        
+        List<List<NewNumEvent>> eventLists = track.eventLists();
+        for (int list = 0; list < eventLists.size(); list++) {
+            long marker = varint(buffer);
+            if (marker == RmcbFormat.DEFAULT_EVENTS) {
+                float value = NewTrack.EVENT_LIST_DEFAULTS[list];
+                eventLists.get(list).add(new NewNumEvent(0, length, value, value, 0));
+                continue;
+            }
+            for (long i = 1; i < marker; i++) {
+                eventLists.get(list).add(new NewNumEvent(buffer.getDouble(), buffer.getDouble(),
+                        buffer.getDouble(), buffer.getDouble(), (int) varint(buffer)));
+            }
+        }
+        
+        int size = (int) varint(buffer);
+        byte[] types = new byte[size];
+        buffer.get(types);
+        double[] beats = beats(buffer, size);
+        float[] posX = new float[size];
+        float[] posY = new float[size];
+        for (int i = 0; i < size; i++) {
+            posX[i] = buffer.getFloat();
+        }
+        for (int i = 0; i < size; i++) {
+            posY[i] = buffer.getFloat();
+        }
+        int[] holdGroups = new int[size];
+        for (int i = 0; i < size; i++) {
+            holdGroups[i] = (int) varint(buffer) - 1;
+        }
+        
+        NoteBuffer notes = new NoteBuffer(size);
+        for (int i = 0; i < size; i++) {
+            notes.add(types[i], beats[i], posX[i], posY[i], holdGroups[i], (int) varint(buffer));
+        }
+        track.setNotes(notes);
+        return track;
+    }
+    
+    private double[] beats(ByteBuffer buffer, int size) {
+        double[] beats = new double[size];
+        if (varint(buffer) == RmcbFormat.BEATS_RAW) {
+            for (int i = 0; i < size; i++) {
+                beats[i] = buffer.getDouble();
+            }
+            return beats;
+        }
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            previous += zigzag(buffer);
+            beats[i] = previous;
+        }
+        return beats;
+    }
+    
+    private Object value(ByteBuffer buffer, String[] strings) throws IOException {
+        int tag = buffer.get();
+        return switch (tag) {
+            case RmcbFormat.TAG_NULL -> null;
+            case RmcbFormat.TAG_FALSE -> Boolean.FALSE;
+            case RmcbFormat.TAG_TRUE -> Boolean.TRUE;
+            case RmcbFormat.TAG_INT -> {
+                long value = zigzag(buffer);
+                yield value == (int) value ? (Object) (int) value : (Object) value;
+            }
+            case RmcbFormat.TAG_LONG -> zigzag(buffer);
+            case RmcbFormat.TAG_FLOAT -> buffer.getFloat();
+            case RmcbFormat.TAG_DOUBLE -> buffer.getDouble();
+            case RmcbFormat.TAG_DECIMAL -> new BigDecimal(strings[(int) varint(buffer)]);
+            case RmcbFormat.TAG_STRING -> strings[(int) varint(buffer)];
+            case RmcbFormat.TAG_ARRAY -> {
+                int count = (int) varint(buffer);
+                JSONArray array = new JSONArray(count);
+                for (int i = 0; i < count; i++) {
+                    array.add(value(buffer, strings));
+                }
+                yield array;
+            }
+            case RmcbFormat.TAG_OBJECT -> {
+                int count = (int) varint(buffer);
+                JSONObject object = new JSONObject();
+                for (int i = 0; i < count; i++) {
+                    String key = strings[(int) varint(buffer)];
+                    object.put(key, value(buffer, strings));
+                }
+                yield object;
+            }
+            default -> throw new IOException("Unknown .rmcb value tag: " + tag);
+        };
+    }
+    
+    private static long varint(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+    
+    private static long zigzag(ByteBuffer buffer) {
+        long value = varint(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
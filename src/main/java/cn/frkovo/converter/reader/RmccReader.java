@@ -0,0 +1,281 @@
+package cn.frkovo.converter.reader;
+
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.model.new_.NewEffect;
+import cn.frkovo.converter.model.new_.NewNumEvent;
+import cn.frkovo.converter.model.new_.NewTrack;
+import cn.frkovo.converter.model.new_.NoteBuffer;
+import cn.frkovo.converter.model.new_.SpawnIndex;
+import cn.frkovo.converter.util.JsonReaders;
+import cn.frkovo.converter.util.Utf8FileInput;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a converted .rmcc chart back into the new chart model.
+ * Streams tokens, so only the model itself is kept in memory.
+ * Compact output is read too; the defaults it leaves out are filled in.
+ * Effects kept in a shared effects file are loaded from next to the chart,
+ * and string table references in effect properties are resolved.
+ */
+public class RmccReader {
+    
+    public NewChart read(Path file) throws IOException {
+        NewChart chart = Utf8FileInput.parseJson(file, this::read);
+        resolveEffectsFile(chart, file);
+        return chart;
+    }
+    
+    /**
+     * Load the effects of a chart that references a shared effects file next to {@code file}
+     */
+    private void resolveEffectsFile(NewChart chart, Path file) throws IOException {
+        if (chart.getEffectsFile() != null) {
+            NewChart shared = Utf8FileInput.parseJson(file.resolveSibling(chart.getEffectsFile()), this::read);
+            chart.setEffects(shared.getEffects());
+            chart.setEffectIndex(shared.getEffectIndex());
+        }
+    }
+    
+    public NewChart read(JSONReader reader) {
+        NewChart chart = new NewChart();
+        boolean compact = false;  // Compact files have "length" and may omit default event lists
+        StringTable strings = null;
+        
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            switch (reader.readFieldName()) {
+                case "meta" -> chart.setMeta(readObject(reader));
+                case "tracks" -> {
+                    if (reader.nextIfArrayStart()) {
+                        while (!reader.nextIfArrayEnd()) {
+                            chart.getTracks().add(readTrack(reader));
+                        }
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                case "effects" -> {
+                    if (reader.nextIfArrayStart()) {
+                        while (!reader.nextIfArrayEnd()) {
+                            chart.getEffects().add(readEffect(reader));
+                        }
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                case "effectIndex" -> chart.setEffectIndex(readEffectIndex(reader));
+                case "effectsFile" -> chart.setEffectsFile(reader.readString());
+                case "strings" -> {
+                    List<String> table = JsonReaders.readStringList(reader);
+                    strings = table != null ? StringTable.of(table) : null;
+                }
+                case "length" -> {
+                    chart.setLength(reader.readInt32Value());
+                    compact = true;
+                }
+                default -> reader.skipValue();
+            }
+        }
+        
+        if (strings != null) {
+            for (NewEffect effect : chart.getEffects()) {
+                strings.decode(effect.getProperties());
+            }
+        }
+        
+        if (compact) {
+            for (NewTrack track : chart.getTracks()) {
+                track.fillDefaultEvents(chart.getLength());
+            }
+            return chart;
+        }
+        
+        // Song length is the end of the default speed event
+        for (NewTrack track : chart.getTracks()) {
+            if (!track.getSpeedEvents().isEmpty()) {
+                chart.setLength((int) track.getSpeedEvents().get(track.getSpeedEvents().size() - 1).getEndBeat());
+                break;
+            }
+        }
+        return chart;
+    }
+    
+    NewTrack readTrack(JSONReader reader) {
+        NewTrack track = new NewTrack();
+        
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            switch (reader.readFieldName()) {
+                case "id" -> track.setId(reader.readInt32Value());
+                case "speedEvents" -> readNumEvents(reader, track.getSpeedEvents());
+                case "xTransformEvents" -> readNumEvents(reader, track.getXTransformEvents());
+                case "yTransformEvents" -> readNumEvents(reader, track.getYTransformEvents());
+                case "zTransformEvents" -> readNumEvents(reader, track.getZTransformEvents());
+                case "xRotateEvents" -> readNumEvents(reader, track.getXRotateEvents());
+                case "yRotateEvents" -> readNumEvents(reader, track.getYRotateEvents());
+                case "zRotateEvents" -> readNumEvents(reader, track.getZRotateEvents());
+                case "xScaleEvents" -> readNumEvents(reader, track.getXScaleEvents());
+                case "yScaleEvents" -> readNumEvents(reader, track.getYScaleEvents());
+                case "zScaleEvents" -> readNumEvents(reader, track.getZScaleEvents());
+                case "notes" -> {
+                    if (reader.nextIfArrayStart()) {
+                        while (!reader.nextIfArrayEnd()) {
+                            readNote(reader, track.getNotes());
+                        }
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                case "spawnIndex" -> track.setSpawnIndex(readSpawnIndex(reader));
+                default -> reader.skipValue();
+            }
+        }
+        return track;
+    }
+    
+    private void readNumEvents(JSONReader reader, List<NewNumEvent> events) {
+        if (!reader.nextIfArrayStart()) {
+            reader.skipValue();
+            return;
+        }
+        while (!reader.nextIfArrayEnd()) {
+            NewNumEvent event = new NewNumEvent();
+            reader.nextIfObjectStart();
+            while (!reader.nextIfObjectEnd()) {
+                switch (reader.readFieldName()) {
+                    case "startBeat" -> event.setStartBeat(reader.readDoubleValue());
+                    case "endBeat" -> event.setEndBeat(reader.readDoubleValue());
+                    case "startValue" -> event.setStartValue(reader.readDoubleValue());
+                    case "endValue" -> event.setEndValue(reader.readDoubleValue());
+                    case "easing" -> event.setEasing(reader.readInt32Value());
+                    default -> reader.skipValue();
+                }
+            }
+            events.add(event);
+        }
+    }
+    
+    /**
+     * Read one note into the buffer. posZ, scale and rotation are always the
+     * NoteBuffer defaults in converted charts and are not kept.
+     */
+    private void readNote(JSONReader reader, NoteBuffer notes) {
+        int type = 0;
+        double beat = 0;
+        float x = 0;
+        float y = 0;
+        int holdGroup = -1;
+        int holdLength = 0;
+        
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            switch (reader.readFieldName()) {
+                case "noteType" -> type = reader.readInt32Value();
+                case "beat" -> beat = reader.readDoubleValue();
+                case "holdGroup" -> holdGroup = reader.readInt32Value();
+                case "holdLength" -> holdLength = reader.readInt32Value();
+                case "pos" -> {
+                    double[] pos = readTriple(reader);
+                    x = (float) pos[0];
+                    y = (float) pos[1];
+                }
+                default -> reader.skipValue();
+            }
+        }
+        notes.add(type, beat, x, y, holdGroup, holdLength);
+    }
+    
+    /**
+     * Read a [x, y, z] array; missing components are 0
+     */
+    private double[] readTriple(JSONReader reader) {
+        double[] values = new double[3];
+        if (!reader.nextIfArrayStart()) {
+            reader.skipValue();
+            return values;
+        }
+        int i = 0;
+        while (!reader.nextIfArrayEnd()) {
+            double value = reader.readDoubleValue();
+            if (i < values.length) {
+                values[i] = value;
+            }
+            i++;
+        }
+        return values;
+    }
+    
+    private NewEffect readEffect(JSONReader reader) {
+        NewEffect effect = new NewEffect();
+        
+        reader.nextIfObjectStart();
+        while (!reader.nextIfObjectEnd()) {
+            switch (reader.readFieldName()) {
+                case "effectType" -> effect.setEventType(reader.readString());
+                case "beat" -> effect.setBeat(reader.readDoubleValue());
+                case "properties" -> effect.setProperties(readObject(reader));
+                default -> reader.skipValue();
+            }
+        }
+        return effect;
+    }
+    
+    private Map<String, int[]> readEffectIndex(JSONReader reader) {
+        if (!reader.nextIfObjectStart()) {
+            reader.skipValue();
+            return null;
+        }
+        Map<String, int[]> index = new LinkedHashMap<>();
+        while (!reader.nextIfObjectEnd()) {
+            String type = reader.readFieldName();
+            index.put(type, readIntArray(reader));
+        }
+        return index;
+    }
+    
+    private SpawnIndex readSpawnIndex(JSONReader reader) {
+        if (!reader.nextIfObjectStart()) {
+            reader.skipValue();
+            return null;
+        }
+        SpawnIndex spawnIndex = new SpawnIndex();
+        while (!reader.nextIfObjectEnd()) {
+            switch (reader.readFieldName()) {
+                case "windowTicks" -> spawnIndex.setWindowTicks(reader.readInt32Value());
+                case "lookaheadTicks" -> spawnIndex.setLookaheadTicks(reader.readInt32Value());
+                case "starts" -> spawnIndex.setStarts(readIntArray(reader));
+                default -> reader.skipValue();
+            }
+        }
+        return spawnIndex;
+    }
+    
+    private int[] readIntArray(JSONReader reader) {
+        int[] values = new int[16];
+        int count = 0;
+        reader.nextIfArrayStart();
+        while (!reader.nextIfArrayEnd()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = reader.readInt32Value();
+        }
+        return Arrays.copyOf(values, count);
+    }
+    
+    JSONObject readObject(JSONReader reader) {
+        if (!reader.isObject()) {
+            reader.skipValue();
+            return null;
+        }
+        return new JSONObject(reader.readObject());
+    }
+}
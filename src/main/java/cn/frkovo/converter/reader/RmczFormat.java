@@ -0,0 +1,35 @@
+package cn.frkovo.converter.reader;
+
+import java.util.zip.Adler32;
+
+/**
+ * Constants of the deflated chart format (.rmcz).
+ * 
+ * Layout:
+ * <pre>
+ * magic "RMCZ", version (1 byte), dictionary id (int32, big-endian)
+ * raw deflate stream (no zlib header) of the .rmcc bytes, using the preset dictionary
+ * </pre>
+ * The dictionary id is the Adler-32 of the dictionary, so a reader can tell
+ * whether it has the dictionary a file was written with. The dictionary is
+ * built from a corpus of converted charts by {@code DictionaryBuilder} and
+ * copied next to the charts as {@link #DICTIONARY_FILE}.
+ * Shared effects files referenced by .rmcz charts are deflated the same way.
+ */
+public final class RmczFormat {
+    public static final byte[] MAGIC = {'R', 'M', 'C', 'Z'};
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = MAGIC.length + 1 + 4;
+    
+    public static final String EXTENSION = ".rmcz";
+    
+    public static final String DICTIONARY_FILE = "rmcc.dict";
+    
+    private RmczFormat() {}
+    
+    public static int dictionaryId(byte[] dictionary) {
+        Adler32 adler = new Adler32();
+        adler.update(dictionary);
+        return (int) adler.getValue();
+    }
+}
@@ -0,0 +1,83 @@
+package cn.frkovo.converter.reader;
+
+import cn.frkovo.converter.model.new_.NewChart;
+import com.alibaba.fastjson2.JSONReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads deflated .rmcz charts written with a given preset dictionary.
+ * The result is the same as {@link RmccReader} gives for the uncompressed .rmcc.
+ */
+public class RmczReader {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final byte[] dictionary;
+    private final int dictionaryId;
+    private final RmccReader rmccReader = new RmccReader();
+    
+    public RmczReader(byte[] dictionary) {
+        this.dictionary = dictionary;
+        this.dictionaryId = RmczFormat.dictionaryId(dictionary);
+    }
+    
+    public static RmczReader load(Path dictionaryFile) throws IOException {
+        return new RmczReader(Files.readAllBytes(dictionaryFile));
+    }
+    
+    public NewChart read(Path file) throws IOException {
+        NewChart chart = rmccReader.read(JSONReader.of(inflate(Files.readAllBytes(file))));
+        if (chart.getEffectsFile() != null) {
+            Path effectsFile = file.resolveSibling(chart.getEffectsFile());
+            NewChart shared = rmccReader.read(JSONReader.of(inflate(Files.readAllBytes(effectsFile))));
+            chart.setEffects(shared.getEffects());
+            chart.setEffectIndex(shared.getEffectIndex());
+        }
+        return chart;
+    }
+    
+    /**
+     * @return The .rmcc bytes of an .rmcz file
+     */
+    public byte[] inflate(byte[] rmcz) throws IOException {
+        if (rmcz.length < RmczFormat.HEADER_SIZE
+                || !Arrays.equals(rmcz, 0, RmczFormat.MAGIC.length, RmczFormat.MAGIC, 0, RmczFormat.MAGIC.length)) {
+            throw new IOException("Not an .rmcz chart");
+        }
+        int version = rmcz[RmczFormat.MAGIC.length];
+        if (version != RmczFormat.VERSION) {
+            throw new IOException("Unsupported .rmcz version: " + version);
+        }
+        int id = (rmcz[5] & 0xFF) << 24 | (rmcz[6] & 0xFF) << 16 | (rmcz[7] & 0xFF) << 8 | (rmcz[8] & 0xFF);
+        if (id != dictionaryId) {
+            throw new IOException(String.format("Chart needs dictionary %08x, have %08x", id, dictionaryId));
+        }
+        
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setDictionary(dictionary);
+            inflater.setInput(rmcz, RmczFormat.HEADER_SIZE, rmcz.length - RmczFormat.HEADER_SIZE);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(rmcz.length * 8);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && inflater.needsInput()) {
+                    throw new IOException("Truncated .rmcz chart");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt .rmcz chart", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package cn.frkovo.converter.reader;
+
+import cn.frkovo.converter.model.new_.NewEffect;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-chart table of strings repeated in effect properties.
+ * 
+ * The table is written as "strings" next to the effects, and a property value
+ * "$<n>" stands for strings[n]. Every string value starting with '$' goes into
+ * the table, so an inline string is never mistaken for a reference.
+ * Readers resolve references to the one table instance of each string.
+ */
+public final class StringTable {
+    
+    public static final String REF_PREFIX = "$";
+    
+    // Strings shorter than this are only tabled when they have to be escaped
+    private static final int MIN_LENGTH = 4;
+    
+    private final List<String> strings;
+    private final Map<String, Integer> indexes;
+    
+    private StringTable(List<String> strings) {
+        this.strings = strings;
+        this.indexes = new HashMap<>(strings.size() * 2);
+        for (int i = 0; i < strings.size(); i++) {
+            indexes.put(strings.get(i), i);
+        }
+    }
+    
+    public static StringTable of(List<String> strings) {
+        return new StringTable(strings);
+    }
+    
+    /**
+     * Table of the strings used more than once in the effects' properties, most used first
+     * @return The table, or null if no string is worth tabling
+     */
+    public static StringTable build(List<NewEffect> effects) {
+        Map<String, int[]> counts = new LinkedHashMap<>();
+        for (NewEffect effect : effects) {
+            count(effect.getProperties(), counts);
+        }
+        List<String> strings = new ArrayList<>();
+        counts.forEach((string, count) -> {
+            if (string.startsWith(REF_PREFIX) || (count[0] > 1 && string.length() >= MIN_LENGTH)) {
+                strings.add(string);
+            }
+        });
+        if (strings.isEmpty()) {
+            return null;
+        }
+        // Stable, so equally used strings stay in order of first use
+        strings.sort((a, b) -> Integer.compare(counts.get(b)[0], counts.get(a)[0]));
+        return new StringTable(strings);
+    }
+    
+    private static void count(Object value, Map<String, int[]> counts) {
+        if (value instanceof String string) {
+            counts.computeIfAbsent(string, key -> new int[1])[0]++;
+        } else if (value instanceof Map<?, ?> map) {
+            for (Object element : map.values()) {
+                count(element, counts);
+            }
+        } else if (value instanceof List<?> list) {
+            for (Object element : list) {
+                count(element, counts);
+            }
+        }
+    }
+    
+    public List<String> getStrings() {
+        return strings;
+    }
+    
+    public int size() {
+        return strings.size();
+    }
+    
+    /**
+     * @return A copy of value with tabled strings replaced by references; value itself is not changed
+     */
+    public Object encode(Object value) {
+        if (value instanceof String string) {
+            Integer index = indexes.get(string);
+            return index != null ? REF_PREFIX + index : string;
+        } else if (value instanceof Map<?, ?> map) {
+            JSONObject encoded = new JSONObject();
+            map.forEach((key, element) -> encoded.put(String.valueOf(key), encode(element)));
+            return encoded;
+        } else if (value instanceof List<?> list) {
+            JSONArray encoded = new JSONArray(list.size());
+            for (Object element : list) {
+                encoded.add(encode(element));
+            }
+            return encoded;
+        }
+        return value;
+    }
+    
+    /**
+     * Replace references in freshly read JSON with the table's strings, in place
+     * @return The decoded value
+     */
+    @SuppressWarnings("unchecked")
+    public Object decode(Object value) {
+        if (value instanceof String string) {
+            return string.startsWith(REF_PREFIX) ? strings.get(Integer.parseInt(string, 1, string.length(), 10)) : string;
+        } else if (value instanceof Map<?, ?> map) {
+            ((Map<Object, Object>) map).replaceAll((key, element) -> decode(element));
+        } else if (value instanceof List<?> list) {
+            ((List<Object>) list).replaceAll(this::decode);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,164 @@
+package cn.frkovo.converter.util;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Persistent manifest of input fingerprints for incremental conversion,
+ * with a journal for resuming an interrupted run.
+ * 
+ * Each conversion unit (a chart folder, an arena, the resource pack) is
+ * stored with a fingerprint of its inputs; a unit whose fingerprint hasn't
+ * changed can be skipped. Every completed unit is also appended to the
+ * journal right away, so a run that crashes halfway can be restarted
+ * without redoing finished units. The journal is removed once the run
+ * finishes. Safe for concurrent use.
+ */
+public class ConversionCache {
+    private static final Logger logger = LoggerFactory.getLogger(ConversionCache.class);
+    
+    private final Path manifestFile;
+    private final Path journalFile;
+    private final String version;
+    private final Map<String, String> units = new ConcurrentHashMap<>();
+    private BufferedWriter journal;
+    
+    private ConversionCache(Path manifestFile, Path journalFile, String version) {
+        this.manifestFile = manifestFile;
+        this.journalFile = journalFile;
+        this.version = version;
+    }
+    
+    /**
+     * Load the manifest (only if {@code incremental}) and replay the journal of an interrupted run.
+     * A missing, unreadable or other-version manifest starts empty.
+     */
+    public static ConversionCache load(Path manifestFile, Path journalFile, String version, boolean incremental) throws IOException {
+        ConversionCache cache = new ConversionCache(manifestFile, journalFile, version);
+        if (incremental && Files.exists(manifestFile)) {
+            try {
+                JSONObject json = JSONObject.parseObject(Files.readString(manifestFile));
+                if (json != null && version.equals(json.getString("version")) && json.getJSONObject("units") != null) {
+                    json.getJSONObject("units").forEach((unit, fingerprint) -> cache.units.put(unit, String.valueOf(fingerprint)));
+                }
+            } catch (Exception e) {
+                logger.warn("Ignoring unreadable conversion cache: {}", manifestFile, e);
+            }
+            logger.info("Loaded {} cached conversion units", cache.units.size());
+        }
+        
+        if (Files.exists(journalFile)) {
+            List<String> lines = Files.readAllLines(journalFile, StandardCharsets.UTF_8);
+            int resumed = 0;
+            for (String line : lines) {
+                // version \t unit \t fingerprint; a torn last line has fewer fields and is ignored
+                String[] fields = line.split("\t", 3);
+                if (fields.length == 3 && fields[0].equals(version)) {
+                    cache.units.put(fields[1], fields[2]);
+                    resumed++;
+                }
+            }
+            logger.info("Resuming interrupted run: {} unit(s) already completed", resumed);
+        }
+        
+        Files.createDirectories(journalFile.toAbsolutePath().getParent());
+        cache.journal = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return cache;
+    }
+    
+    public boolean isUpToDate(String unit, String fingerprint) {
+        return fingerprint.equals(units.get(unit));
+    }
+    
+    /**
+     * Record a completed unit and append it to the journal
+     */
+    public void update(String unit, String fingerprint) throws IOException {
+        units.put(unit, fingerprint);
+        synchronized (this) {
+            journal.write(version + "\t" + unit + "\t" + fingerprint);
+            journal.newLine();
+            journal.flush();
+        }
+    }
+    
+    public synchronized void save() throws IOException {
+        JSONObject json = new JSONObject();
+        json.put("version", version);
+        json.put("units", new TreeMap<>(units));
+        
+        Files.createDirectories(manifestFile.toAbsolutePath().getParent());
+        Path temp = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        Files.writeString(temp, json.toJSONString(JSONWriter.Feature.PrettyFormat));
+        Files.move(temp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Save the manifest and drop the journal: the run completed
+     */
+    public synchronized void finish() throws IOException {
+        save();
+        journal.close();
+        Files.deleteIfExists(journalFile);
+    }
+    
+    /**
+     * Build a fingerprint from input files (size and CRC32C of the content) and extra values
+     * such as the song ID or output options. Missing files are recorded as missing.
+     */
+    public static String fingerprint(Iterable<Path> files, Object... extras) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Path file : files) {
+            sb.append(file.getFileName()).append('=');
+            if (Files.exists(file)) {
+                sb.append(Files.size(file)).append(':').append(Long.toHexString(crc32c(file)));
+            } else {
+                sb.append("missing");
+            }
+            sb.append(';');
+        }
+        for (Object extra : extras) {
+            sb.append(extra).append(';');
+        }
+        // Fingerprints are stored one per journal line
+        return sb.toString().replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+    
+    /**
+     * Short digest of a value for use as a fingerprint extra
+     */
+    public static String digest(String value) {
+        CRC32C crc = new CRC32C();
+        crc.update(value.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+    
+    private static long crc32c(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+}
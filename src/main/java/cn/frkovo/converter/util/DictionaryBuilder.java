@@ -0,0 +1,183 @@
+package cn.frkovo.converter.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * Builds a preset deflate dictionary for .rmcz output from a corpus of converted charts.
+ * 
+ * A simplified COVER selection: every 8-byte substring (d-mer) is scored by the
+ * number of charts containing it, the corpus is cut into one epoch per dictionary
+ * segment, and from each epoch the segment whose distinct d-mers score highest is
+ * taken. Chosen d-mers score 0 afterwards, so segments don't repeat each other.
+ * The best segments go last, where deflate reaches them with the shortest distances.
+ * 
+ * Usage: DictionaryBuilder convertedChartsDir outputFile [sizeBytes]
+ */
+public final class DictionaryBuilder {
+    
+    // Deflate only looks back 32 KB, so a larger dictionary is never used
+    public static final int DEFAULT_SIZE = 32 * 1024;
+    
+    private static final int DMER = 8;
+    private static final int SEGMENT = 128;
+    
+    // Corpus bytes sampled in total, spread evenly over the charts
+    private static final int MAX_CORPUS = 16 * 1024 * 1024;
+    
+    private DictionaryBuilder() {}
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: DictionaryBuilder convertedChartsDir outputFile [sizeBytes]");
+            System.exit(2);
+        }
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SIZE;
+        
+        List<byte[]> samples = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(Paths.get(args[0]))) {
+            for (Path file : files.filter(p -> p.toString().endsWith(".rmcc")).sorted().toList()) {
+                samples.add(Files.readAllBytes(file));
+            }
+        }
+        if (samples.isEmpty()) {
+            System.err.println("No .rmcc files under " + args[0]);
+            System.exit(1);
+        }
+        
+        byte[] dictionary = build(samples, size);
+        Files.write(Paths.get(args[1]), dictionary);
+        
+        long raw = 0, plain = 0, withDictionary = 0;
+        for (byte[] sample : samples) {
+            raw += sample.length;
+            plain += deflatedSize(sample, null);
+            withDictionary += deflatedSize(sample, dictionary);
+        }
+        System.out.printf("Dictionary: %d bytes from %d charts%n", dictionary.length, samples.size());
+        System.out.printf("Deflated: %.1f%% of %d bytes without dictionary, %.1f%% with%n",
+                100.0 * plain / raw, raw, 100.0 * withDictionary / raw);
+    }
+    
+    public static byte[] build(List<byte[]> samples, int size) {
+        byte[] corpus = sampleCorpus(samples);
+        
+        // Document frequency of every d-mer
+        Map<Long, Integer> frequencies = new HashMap<>();
+        int start = 0;
+        for (byte[] sample : samples) {
+            int length = Math.min(sample.length, MAX_CORPUS / samples.size());
+            Set<Long> seen = new HashSet<>();
+            for (int i = start; i + DMER <= start + length; i++) {
+                if (seen.add(dmer(corpus, i))) {
+                    frequencies.merge(dmer(corpus, i), 1, Integer::sum);
+                }
+            }
+            start += length;
+        }
+        
+        int epochs = Math.max(1, size / SEGMENT);
+        int epochLength = Math.max(SEGMENT, corpus.length / epochs);
+        List<Segment> segments = new ArrayList<>();
+        for (int epochStart = 0; epochStart + SEGMENT <= corpus.length; epochStart += epochLength) {
+            Segment best = bestSegment(corpus, epochStart, Math.min(corpus.length, epochStart + epochLength), frequencies);
+            if (best != null) {
+                segments.add(best);
+                for (int i = best.start; i + DMER <= best.start + SEGMENT; i++) {
+                    frequencies.put(dmer(corpus, i), 0);
+                }
+            }
+        }
+        
+        // Lowest scores first, trimmed from the front to the requested size
+        segments.sort((a, b) -> Long.compare(a.score, b.score));
+        byte[] dictionary = new byte[segments.size() * SEGMENT];
+        for (int i = 0; i < segments.size(); i++) {
+            System.arraycopy(corpus, segments.get(i).start, dictionary, i * SEGMENT, SEGMENT);
+        }
+        return dictionary.length > size ? Arrays.copyOfRange(dictionary, dictionary.length - size, dictionary.length) : dictionary;
+    }
+    
+    private record Segment(int start, long score) {}
+    
+    /**
+     * Slide a SEGMENT-byte window over [from, to), scoring each distinct d-mer in it once
+     */
+    private static Segment bestSegment(byte[] corpus, int from, int to, Map<Long, Integer> frequencies) {
+        Map<Long, Integer> window = new HashMap<>();
+        long score = 0;
+        Segment best = null;
+        for (int end = from; end + DMER <= to; end++) {
+            long added = dmer(corpus, end);
+            if (window.merge(added, 1, Integer::sum) == 1) {
+                score += frequencies.getOrDefault(added, 0);
+            }
+            int start = end - (SEGMENT - DMER);
+            if (start > from) {
+                long removed = dmer(corpus, start - 1);
+                if (window.merge(removed, -1, Integer::sum) == 0) {
+                    window.remove(removed);
+                    score -= frequencies.getOrDefault(removed, 0);
+                }
+            }
+            if (start >= from && score > 0 && (best == null || score > best.score)) {
+                best = new Segment(start, score);
+            }
+        }
+        return best;
+    }
+    
+    private static byte[] sampleCorpus(List<byte[]> samples) {
+        int perSample = MAX_CORPUS / samples.size();
+        int total = 0;
+        for (byte[] sample : samples) {
+            total += Math.min(sample.length, perSample);
+        }
+        byte[] corpus = new byte[total];
+        int offset = 0;
+        for (byte[] sample : samples) {
+            int length = Math.min(sample.length, perSample);
+            System.arraycopy(sample, 0, corpus, offset, length);
+            offset += length;
+        }
+        return corpus;
+    }
+    
+    private static long dmer(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 0; i < DMER; i++) {
+            value = value << 8 | (data[offset + i] & 0xFF);
+        }
+        return value;
+    }
+    
+    private static int deflatedSize(byte[] data, byte[] dictionary) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[64 * 1024];
+            int size = 0;
+            while (!deflater.finished()) {
+                size += deflater.deflate(buffer);
+            }
+            return size;
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package cn.frkovo.converter.util;
+
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONReader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Small helpers for reading nullable values from a streaming JSONReader
+ */
+public class JsonReaders {
+    
+    private JsonReaders() {}
+    
+    public static Integer readInteger(JSONReader reader) {
+        return reader.nextIfNull() ? null : reader.readInt32Value();
+    }
+    
+    public static Long readLong(JSONReader reader) {
+        return reader.nextIfNull() ? null : reader.readInt64Value();
+    }
+    
+    public static Float readFloat(JSONReader reader) {
+        return reader.nextIfNull() ? null : reader.readFloatValue();
+    }
+    
+    public static Double readDouble(JSONReader reader) {
+        return reader.nextIfNull() ? null : reader.readDoubleValue();
+    }
+    
+    public static Boolean readBoolean(JSONReader reader) {
+        return reader.nextIfNull() ? null : reader.readBoolValue();
+    }
+    
+    /**
+     * Read an array of strings; non-string elements are converted to their text form
+     */
+    public static List<String> readStringList(JSONReader reader) {
+        if (!reader.nextIfArrayStart()) {
+            reader.skipValue();
+            return null;
+        }
+        List<String> list = new ArrayList<>();
+        while (!reader.nextIfArrayEnd()) {
+            list.add(reader.readString());
+        }
+        return list;
+    }
+    
+    /**
+     * Read a (small) array value, or null if the value is not an array
+     */
+    public static JSONArray readArray(JSONReader reader) {
+        if (!reader.isArray()) {
+            reader.skipValue();
+            return null;
+        }
+        return new JSONArray(reader.readArray());
+    }
+}
@@ -0,0 +1,96 @@
+package cn.frkovo.converter.util;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Persistent SHA -> songId registry.
+ * 
+ * A chart keeps its song ID across runs; new charts get IDs after the
+ * highest one ever assigned, so IDs of removed charts are never reused.
+ * IDs handed out in this run can be released again if their chart fails to convert.
+ */
+public class SongIdRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(SongIdRegistry.class);
+    
+    private final Path registryFile;
+    private final Map<String, Integer> songIds = new TreeMap<>();
+    private final Set<String> assignedThisRun = new HashSet<>();
+    private final int startSongId;
+    private int nextSongId;
+    
+    private SongIdRegistry(Path registryFile, int startSongId) {
+        this.registryFile = registryFile;
+        this.startSongId = startSongId;
+        this.nextSongId = startSongId;
+    }
+    
+    public static SongIdRegistry load(Path registryFile, int startSongId) throws IOException {
+        SongIdRegistry registry = new SongIdRegistry(registryFile, startSongId);
+        if (Files.exists(registryFile)) {
+            JSONObject json = JSONObject.parseObject(Files.readString(registryFile));
+            if (json != null) {
+                for (String sha : json.keySet()) {
+                    int songId = json.getIntValue(sha);
+                    registry.songIds.put(sha, songId);
+                    registry.nextSongId = Math.max(registry.nextSongId, songId + 1);
+                }
+            }
+            logger.info("Loaded {} song IDs from {}", registry.songIds.size(), registryFile);
+        }
+        return registry;
+    }
+    
+    /**
+     * @return The registered song ID of the chart, assigning the next free one if it's new
+     */
+    public synchronized int assign(String sha) {
+        Integer songId = songIds.get(sha);
+        if (songId == null) {
+            songId = nextSongId++;
+            songIds.put(sha, songId);
+            assignedThisRun.add(sha);
+        }
+        return songId;
+    }
+    
+    /**
+     * Drop the ID of a chart that was new in this run, e.g. because it failed to convert;
+     * charts registered in earlier runs keep theirs.
+     * The ID is free again only if no higher one is registered, otherwise it stays a gap.
+     * 
+     * @return Whether the ID was released
+     */
+    public synchronized boolean release(String sha) {
+        if (!assignedThisRun.remove(sha)) {
+            return false;
+        }
+        songIds.remove(sha);
+        nextSongId = startSongId;
+        for (int songId : songIds.values()) {
+            nextSongId = Math.max(nextSongId, songId + 1);
+        }
+        return true;
+    }
+    
+    public synchronized void save() throws IOException {
+        JSONObject json = new JSONObject();
+        json.putAll(songIds);
+        
+        Files.createDirectories(registryFile.toAbsolutePath().getParent());
+        Path temp = registryFile.resolveSibling(registryFile.getFileName() + ".tmp");
+        Files.writeString(temp, json.toJSONString(JSONWriter.Feature.PrettyFormat));
+        Files.move(temp, registryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
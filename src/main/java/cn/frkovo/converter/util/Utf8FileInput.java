@@ -0,0 +1,118 @@
+package cn.frkovo.converter.util;
+
+import com.alibaba.fastjson2.JSONReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Reads input files as raw UTF-8 bytes through a FileChannel.
+ * 
+ * JSON is parsed straight from the bytes: no UTF-16 String of the whole file and
+ * no growing stream buffer. Byte arrays come from a small pool shared by all threads,
+ * so converting many charts doesn't allocate a new file-sized array for each one,
+ * while the memory the pool keeps stays bounded however many workers there are.
+ */
+public class Utf8FileInput {
+    
+    // At most POOL_SIZE * MAX_POOLED_BYTES stay allocated between reads
+    private static final int POOL_SIZE = 4;
+    
+    // Larger buffers are allocated for the one read and left to the GC
+    private static final int MAX_POOLED_BYTES = 4 * 1024 * 1024;
+    
+    private static final BlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+    
+    private Utf8FileInput() {}
+    
+    /**
+     * Parse a UTF-8 JSON file with {@code parser}; the reader is only valid inside the call
+     */
+    public static <T> T parseJson(Path file, Function<JSONReader, T> parser) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int length = checkedSize(channel, file);
+            byte[] bytes = borrow(length);
+            try {
+                read(channel, bytes, length);
+                try (JSONReader reader = JSONReader.of(bytes, 0, length)) {
+                    return parser.apply(reader);
+                }
+            } finally {
+                release(bytes);
+            }
+        }
+    }
+    
+    /**
+     * @return The raw bytes of a file as a stream, e.g. for YAML with its own UTF-8 detection;
+     *         closing it returns the bytes to the pool
+     */
+    public static InputStream openStream(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int length = checkedSize(channel, file);
+            byte[] bytes = borrow(length);
+            try {
+                read(channel, bytes, length);
+            } catch (IOException e) {
+                release(bytes);
+                throw e;
+            }
+            return new ByteArrayInputStream(bytes, 0, length) {
+                private boolean closed;
+                
+                @Override
+                public void close() {
+                    if (!closed) {
+                        closed = true;
+                        release(bytes);
+                    }
+                }
+            };
+        }
+    }
+    
+    private static int checkedSize(FileChannel channel, Path file) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("File too large: " + file + " (" + size + " bytes)");
+        }
+        return (int) size;
+    }
+    
+    private static void read(FileChannel channel, byte[] bytes, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+    
+    /**
+     * Take a pooled buffer if one is big enough; it's not shared while borrowed
+     */
+    private static byte[] borrow(int length) {
+        if (length <= MAX_POOLED_BYTES) {
+            byte[] bytes = POOL.poll();
+            if (bytes != null && bytes.length >= length) {
+                return bytes;
+            }
+            // A pooled buffer that is too small is dropped, the new one takes its place on release
+        }
+        return new byte[Math.max(length, 1)];
+    }
+    
+    private static void release(byte[] bytes) {
+        if (bytes.length <= MAX_POOLED_BYTES) {
+            POOL.offer(bytes);  // Dropped if the pool is full
+        }
+    }
+}
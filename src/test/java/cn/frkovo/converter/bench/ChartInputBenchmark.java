@@ -0,0 +1,100 @@
+package cn.frkovo.converter.bench;
+
+import cn.frkovo.converter.model.old.OldChart;
+import com.alibaba.fastjson2.JSONReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Compares ways of feeding a large chart file to the streaming parser:
+ * decoding it to a String first, an InputStream, and the pooled UTF-8 bytes from Utf8FileInput that
+ * OldChart.fromFile uses. Peak RSS (VmHWM) only ever grows within a process,
+ * so each input mode runs in its own JVM.
+ * Usage: ChartInputBenchmark [noteCount] [effectCount]
+ */
+public class ChartInputBenchmark {
+    
+    private static final List<String> MODES = List.of("string", "stream", "pooled");
+    private static final int ROUNDS = 5;
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && MODES.contains(args[0])) {
+            runMode(args[0], Path.of(args[1]));
+            return;
+        }
+        
+        int noteCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int effectCount = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        
+        Path file = Files.createTempFile("rhythmc-bench", ".json");
+        try {
+            SyntheticChart.write(file, noteCount, effectCount, 42L);
+            System.out.printf("Chart: %d notes, %d effects, %.1f MB%n", noteCount, effectCount, Files.size(file) / 1048576.0);
+            
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            for (String mode : MODES) {
+                Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        ChartInputBenchmark.class.getName(), mode, file.toString())
+                        .inheritIO()
+                        .start();
+                if (process.waitFor() != 0) {
+                    System.out.printf("%s failed%n", mode);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    private static void runMode(String mode, Path file) throws IOException {
+        long size = Files.size(file);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            OldChart chart = parse(mode, file);
+            best = Math.min(best, System.nanoTime() - start);
+            if (chart.getFrames() == null) {
+                throw new IllegalStateException("No frames parsed");
+            }
+        }
+        System.out.printf("%-7s %8.1f ms %8.1f MB/s   peak RSS %7.1f MB%n",
+                mode, best / 1e6, size / 1048576.0 / (best / 1e9), peakRssKb() / 1024.0);
+    }
+    
+    private static OldChart parse(String mode, Path file) throws IOException {
+        switch (mode) {
+            case "string":
+                try (JSONReader reader = JSONReader.of(Files.readString(file))) {
+                    return OldChart.fromReader(reader);
+                }
+            case "stream":
+                try (InputStream in = Files.newInputStream(file);
+                     JSONReader reader = JSONReader.of(in, StandardCharsets.UTF_8)) {
+                    return OldChart.fromReader(reader);
+                }
+            default:
+                return OldChart.fromFile(file.toFile());
+        }
+    }
+    
+    /**
+     * VmHWM of this process in kB, or -1 where /proc isn't available
+     */
+    static long peakRssKb() throws IOException {
+        Path status = Path.of("/proc/self/status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmHWM:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return -1;
+    }
+}
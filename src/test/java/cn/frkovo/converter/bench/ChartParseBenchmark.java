@@ -0,0 +1,59 @@
+package cn.frkovo.converter.bench;
+
+import cn.frkovo.converter.model.old.OldChart;
+import com.alibaba.fastjson2.JSONObject;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares the tree based v1 chart parser with the token streaming one.
+ * Usage: ChartParseBenchmark [noteCount] [effectCount]
+ */
+public class ChartParseBenchmark {
+    
+    public static void main(String[] args) throws IOException {
+        int noteCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int effectCount = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        
+        Path file = Files.createTempFile("rhythmc-bench", ".json");
+        try {
+            SyntheticChart.write(file, noteCount, effectCount, 42L);
+            System.out.printf("Chart: %d notes, %d effects, %.1f MB%n", noteCount, effectCount, Files.size(file) / 1048576.0);
+            
+            for (int round = 0; round < 3; round++) {
+                run("tree     ", () -> OldChart.fromJson(JSONObject.parseObject(Files.readString(file))));
+                run("streaming", () -> OldChart.fromFile(file.toFile()));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    static void run(String name, ChartSupplier parser) throws IOException {
+        System.gc();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        OldChart chart = parser.get();
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        System.out.printf("%s %8.1f ms %10.1f MB allocated (%d frames)%n",
+                name, elapsed / 1e6, allocated / 1048576.0, chart.getFrames().size());
+    }
+    
+    /**
+     * Bytes allocated by the current thread, or -1 if the JVM doesn't report it
+     */
+    static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) {
+            return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+    
+    interface ChartSupplier {
+        OldChart get() throws IOException;
+    }
+}
@@ -0,0 +1,72 @@
+package cn.frkovo.converter.bench;
+
+import cn.frkovo.converter.converter.ChunkedChartWriter;
+import cn.frkovo.converter.converter.RmccWriter;
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.reader.ChunkedChartReader;
+import cn.frkovo.converter.reader.RmccReader;
+import com.alibaba.fastjson2.JSONReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Compares the time until a chart is playable: parsing the whole .rmcc against
+ * parsing the chunk index and the first beat window. Also checks that reading
+ * all chunks gives back exactly the same .rmcc.
+ * Usage: ChunkedLoadBenchmark [noteCount] [windowBeats]
+ */
+public class ChunkedLoadBenchmark {
+    
+    private static final int ROUNDS = 5;
+    
+    public static void main(String[] args) throws IOException {
+        int noteCount = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int windowBeats = args.length > 1 ? Integer.parseInt(args[1]) : 1200;
+        
+        byte[] json = RmcbBenchmark.syntheticRmcc(noteCount, noteCount / 10);
+        RmccReader rmccReader = new RmccReader();
+        RmccWriter rmccWriter = new RmccWriter();
+        ChunkedChartReader chunkedReader = new ChunkedChartReader();
+        NewChart chart = rmccReader.read(JSONReader.of(json));
+        
+        Path directory = Files.createTempDirectory("rhythmc-bench");
+        try {
+            new ChunkedChartWriter().write(chart, directory, windowBeats);
+            ChunkedChartReader.Index index = chunkedReader.readIndex(directory);
+            
+            boolean identical = Arrays.equals(json, RmcbBenchmark.toRmcc(rmccWriter, chunkedReader.read(directory)));
+            System.out.printf("Chart: %.1f MB .rmcc, %d chunks of %d beats, round trip %s%n",
+                    json.length / 1048576.0, index.chunks().size(), windowBeats, identical ? "identical" : "MISMATCH");
+            
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                rmccReader.read(JSONReader.of(json));
+                long wholeTime = System.nanoTime() - start;
+                
+                start = System.nanoTime();
+                ChunkedChartReader.Index firstIndex = chunkedReader.readIndex(directory);
+                if (!firstIndex.chunks().isEmpty()) {
+                    chunkedReader.readChunk(directory, firstIndex.chunks().get(0));
+                }
+                long firstWindowTime = System.nanoTime() - start;
+                System.out.printf("Playable after: whole .rmcc %8.1f ms, index + first window %8.2f ms%n",
+                        wholeTime / 1e6, firstWindowTime / 1e6);
+            }
+            
+            if (!identical) {
+                System.exit(1);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package cn.frkovo.converter.bench;
+
+import cn.frkovo.converter.converter.RmccWriter;
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.reader.RmccReader;
+import com.alibaba.fastjson2.JSONReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Size and parse time of compact .rmcc (minified, defaults left out) against the
+ * pretty printed default, over a directory of converted charts. Also checks that
+ * reading the compact form and writing it pretty again gives the original bytes.
+ * Usage: CompactOutputReport [convertedChartsDir]
+ */
+public class CompactOutputReport {
+    
+    private static final int ROUNDS = 5;
+    
+    public static void main(String[] args) throws IOException {
+        List<byte[]> charts = new ArrayList<>();
+        if (args.length > 0) {
+            try (Stream<Path> files = Files.walk(Paths.get(args[0]))) {
+                for (Path file : files.filter(p -> p.toString().endsWith(".rmcc")).sorted().toList()) {
+                    charts.add(Files.readAllBytes(file));
+                }
+            }
+        } else {
+            charts.add(RmcbBenchmark.syntheticRmcc(200_000, 20_000));
+        }
+        
+        RmccReader reader = new RmccReader();
+        RmccWriter prettyWriter = new RmccWriter();
+        RmccWriter compactWriter = new RmccWriter(true);
+        
+        List<byte[]> pretty = new ArrayList<>();
+        List<byte[]> compact = new ArrayList<>();
+        long prettyBytes = 0;
+        long compactBytes = 0;
+        int mismatches = 0;
+        for (byte[] json : charts) {
+            NewChart chart = reader.read(JSONReader.of(json));
+            byte[] prettyJson = RmcbBenchmark.toRmcc(prettyWriter, chart);
+            byte[] compactJson = RmcbBenchmark.toRmcc(compactWriter, chart);
+            if (!Arrays.equals(prettyJson, RmcbBenchmark.toRmcc(prettyWriter, reader.read(JSONReader.of(compactJson))))) {
+                mismatches++;
+            }
+            pretty.add(prettyJson);
+            compact.add(compactJson);
+            prettyBytes += prettyJson.length;
+            compactBytes += compactJson.length;
+        }
+        System.out.printf("Charts: %d, round trip mismatches: %d%n", charts.size(), mismatches);
+        System.out.printf("Size: pretty %.1f MB, compact %.1f MB (-%.1f%%)%n",
+                prettyBytes / 1048576.0, compactBytes / 1048576.0, 100.0 * (prettyBytes - compactBytes) / prettyBytes);
+        
+        for (int round = 0; round < ROUNDS; round++) {
+            long prettyTime = parseAll(reader, pretty);
+            long compactTime = parseAll(reader, compact);
+            System.out.printf("Parse: pretty %8.1f ms, compact %8.1f ms (-%.1f%%)%n",
+                    prettyTime / 1e6, compactTime / 1e6, 100.0 * (prettyTime - compactTime) / prettyTime);
+        }
+        
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+    
+    private static long parseAll(RmccReader reader, List<byte[]> charts) {
+        long start = System.nanoTime();
+        for (byte[] json : charts) {
+            reader.read(JSONReader.of(json));
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,69 @@
+package cn.frkovo.converter.bench;
+
+import cn.frkovo.converter.model.old.OldChart;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the heap a parsed effect-heavy chart retains until conversion finishes.
+ * "raw tree" reproduces the previous decoding, which kept every effect's JSONObject
+ * in OldEffect.rawData; "type fields" is the current streaming, type-specific decoding.
+ * Usage: EffectRetentionBenchmark [effectCount]
+ */
+public class EffectRetentionBenchmark {
+    
+    public static void main(String[] args) throws IOException {
+        int effectCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        
+        Path file = Files.createTempFile("rhythmc-bench", ".json");
+        try {
+            SyntheticChart.write(file, 1_000, effectCount, 42L);
+            System.out.printf("Chart: %d effects, %.1f MB%n", effectCount, Files.size(file) / 1048576.0);
+            
+            for (int round = 0; round < 3; round++) {
+                measure("raw tree   ", effectCount, () -> {
+                    JSONObject json = JSONObject.parseObject(Files.readString(file));
+                    OldChart chart = OldChart.fromJson(json);
+                    // What rawData used to pin: the JSONObject of every effect
+                    JSONArray effects = json.getJSONArray("effects");
+                    List<Object> retained = new ArrayList<>(effects.size() + 1);
+                    retained.add(chart);
+                    retained.addAll(effects);
+                    return retained;
+                });
+                measure("type fields", effectCount, () -> OldChart.fromFile(file.toFile()));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    static void measure(String name, int effectCount, Parser parser) throws IOException {
+        long before = usedHeapAfterGc();
+        Object retained = parser.parse();
+        long after = usedHeapAfterGc();
+        System.out.printf("%s %8.1f MB retained %6d bytes/effect%n",
+                name, (after - before) / 1048576.0, (after - before) / effectCount);
+        // Keep the result reachable until after the measurement
+        Reference.reachabilityFence(retained);
+    }
+    
+    static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    interface Parser {
+        Object parse() throws IOException;
+    }
+}
@@ -0,0 +1,106 @@
+package cn.frkovo.converter.bench;
+
+import cn.frkovo.converter.converter.ChartConverter;
+import cn.frkovo.converter.converter.ConversionOptions;
+import cn.frkovo.converter.converter.RmccWriter;
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.model.new_.NewTrack;
+import cn.frkovo.converter.model.old.OldChart;
+import cn.frkovo.converter.model.old.OldMetadata;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reports note count and .rmcc size for per-tick vs compact HOLD encoding across a corpus.
+ * Usage: HoldEncodingReport [chartsDir] (defaults to ToConvert/Charts; if that doesn't exist,
+ * a synthetic corpus of SYNTHETIC_CHARTS charts is used)
+ */
+public class HoldEncodingReport {
+    
+    private static final int SYNTHETIC_CHARTS = 8;
+    
+    public static void main(String[] args) throws IOException {
+        Path chartsDir = Paths.get(args.length > 0 ? args[0] : "ToConvert/Charts");
+        if (!Files.isDirectory(chartsDir)) {
+            Path synthetic = Files.createTempDirectory("rhythmc-hold-corpus");
+            System.out.printf("%s not found, using %d synthetic charts%n", chartsDir, SYNTHETIC_CHARTS);
+            SyntheticChart.writeCorpus(synthetic, SYNTHETIC_CHARTS, 20_000, 2_000);
+            try {
+                report(synthetic);
+            } finally {
+                try (Stream<Path> files = Files.walk(synthetic)) {
+                    for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.delete(file);
+                    }
+                }
+            }
+            return;
+        }
+        report(chartsDir);
+    }
+    
+    static void report(Path chartsDir) throws IOException {
+        
+        ConversionOptions compactOptions = new ConversionOptions();
+        compactOptions.setCompactHolds(true);
+        ChartConverter expanded = new ChartConverter();
+        ChartConverter compact = new ChartConverter(compactOptions);
+        RmccWriter writer = new RmccWriter();
+        
+        long[] totals = new long[4];  // expanded notes, compact notes, expanded bytes, compact bytes
+        int charts = 0;
+        Path temp = Files.createTempFile("rhythmc-hold", ".rmcc");
+        try (Stream<Path> folders = Files.list(chartsDir)) {
+            for (Path folder : folders.filter(Files::isDirectory).sorted().toList()) {
+                File metadataFile = folder.resolve("metadata.yml").toFile();
+                if (!metadataFile.exists()) {
+                    continue;
+                }
+                OldMetadata metadata = OldMetadata.fromFile(metadataFile.getAbsolutePath());
+                try (Stream<Path> files = Files.list(folder)) {
+                    for (Path chartFile : files.filter(p -> p.toString().endsWith(".json")).sorted().toList()) {
+                        OldChart oldChart = OldChart.fromFile(chartFile.toFile());
+                        String difficulty = chartFile.getFileName().toString().replace(".json", "");
+                        
+                        NewChart expandedChart = expanded.buildChart(0, metadata, oldChart, difficulty);
+                        writer.write(expandedChart, temp);
+                        totals[0] += countNotes(expandedChart.getTracks());
+                        totals[2] += Files.size(temp);
+                        
+                        NewChart compactChart = compact.buildChart(0, metadata, oldChart, difficulty);
+                        writer.write(compactChart, temp);
+                        totals[1] += countNotes(compactChart.getTracks());
+                        totals[3] += Files.size(temp);
+                        charts++;
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        
+        System.out.printf("Charts:  %d%n", charts);
+        System.out.printf("Notes:   %d -> %d (%.1f%% fewer)%n", totals[0], totals[1], reduction(totals[0], totals[1]));
+        System.out.printf("Size:    %.1f MB -> %.1f MB (%.1f%% smaller)%n",
+                totals[2] / 1048576.0, totals[3] / 1048576.0, reduction(totals[2], totals[3]));
+    }
+    
+    static long countNotes(List<NewTrack> tracks) {
+        long count = 0;
+        for (NewTrack track : tracks) {
+            count += track.getNotes().size();
+        }
+        return count;
+    }
+    
+    static double reduction(long before, long after) {
+        return before == 0 ? 0 : 100.0 * (before - after) / before;
+    }
+}
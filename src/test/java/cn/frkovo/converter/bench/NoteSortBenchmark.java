@@ -0,0 +1,123 @@
+package cn.frkovo.converter.bench;
+
+import cn.frkovo.converter.model.new_.NewNote;
+import cn.frkovo.converter.model.new_.NoteBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares ordering expanded notes with the former List.sort by beat against
+ * NoteBuffer.sortByBeat, on notes laid out like convertFramesToTracks produces them:
+ * frames in tick order, each HOLD expanded in place so later frames overlap it.
+ * Also checks that both orders are identical (the sort is stable).
+ * Each case runs on a fresh copy every round; the summary gives the median and minimum
+ * over the rounds after the first (warm-up) third.
+ * Usage: NoteSortBenchmark [expandedNotes] [rounds]
+ */
+public class NoteSortBenchmark {
+    
+    public static void main(String[] args) {
+        int target = args.length > 0 ? Integer.parseInt(args[0]) : 1_500_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+        
+        NoteBuffer ticks = generate(target, 0.0, 42L);
+        NoteBuffer fractional = generate(target, 0.5, 42L);
+        System.out.printf("Notes: %d expanded%n", ticks.size());
+        
+        String[] names = {"list sort         ", "tick buckets      ", "merge (fractional)"};
+        NoteBuffer[] inputs = {ticks, ticks, fractional};
+        long[][] times = new long[names.length][rounds];
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < names.length; i++) {
+                times[i][round] = run(names[i], inputs[i]);
+            }
+        }
+        
+        int warmup = rounds / 3;
+        for (int i = 0; i < names.length; i++) {
+            long[] measured = Arrays.copyOfRange(times[i], warmup, rounds);
+            Arrays.sort(measured);
+            System.out.printf("%s median %8.1f ms, min %8.1f ms%n",
+                    names[i], measured[measured.length / 2] / 1e6, measured[0] / 1e6);
+        }
+    }
+    
+    /**
+     * Notes tagged with their insertion index in posX, so the resulting order can be compared
+     */
+    static NoteBuffer generate(int target, double beatOffset, long seed) {
+        Random random = new Random(seed);
+        NoteBuffer notes = new NoteBuffer(target + 256);
+        long tick = 0;
+        int holdGroup = 0;
+        while (notes.size() < target) {
+            tick += random.nextInt(5);
+            if (random.nextInt(5) == 0) {
+                int length = 1 + random.nextInt(200);
+                for (int i = 0; i <= length; i++) {
+                    notes.add(2, tick + i + beatOffset, notes.size(), 0f, holdGroup, 0);
+                }
+                holdGroup++;
+            } else {
+                notes.add(random.nextInt(4), tick + beatOffset, notes.size(), 0f, -1, 0);
+            }
+        }
+        return notes;
+    }
+    
+    static long run(String name, NoteBuffer source) {
+        NoteBuffer notes = new NoteBuffer(source.size());
+        notes.addAll(source, 0);
+        System.gc();
+        
+        float[] order = new float[notes.size()];
+        if (name.startsWith("list")) {
+            // Only the sort is timed, not building the NewNote objects
+            List<NewNote> list = new ArrayList<>(notes.size());
+            for (int i = 0; i < notes.size(); i++) {
+                list.add(notes.get(i));
+            }
+            System.gc();
+            long start = System.nanoTime();
+            list.sort(Comparator.comparingDouble(NewNote::getBeat));
+            long elapsed = System.nanoTime() - start;
+            for (int i = 0; i < list.size(); i++) {
+                order[i] = (float) list.get(i).getPosX();
+            }
+            report(name, elapsed, order, source);
+            return elapsed;
+        } else {
+            long start = System.nanoTime();
+            notes.sortByBeat();
+            long elapsed = System.nanoTime() - start;
+            for (int i = 0; i < notes.size(); i++) {
+                order[i] = notes.getPosX(i);
+            }
+            report(name, elapsed, order, source);
+            return elapsed;
+        }
+    }
+    
+    /**
+     * Print the time and verify the order against a stable reference sort
+     */
+    static void report(String name, long elapsed, float[] order, NoteBuffer source) {
+        Integer[] expected = new Integer[source.size()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i;
+        }
+        Arrays.sort(expected, Comparator.comparingDouble(source::getBeat));
+        boolean stable = true;
+        for (int i = 0; i < expected.length; i++) {
+            if (order[i] != expected[i]) {
+                stable = false;
+                break;
+            }
+        }
+        System.out.printf("%s %8.1f ms %s%n", name, elapsed / 1e6, stable ? "" : "ORDER MISMATCH");
+    }
+}
@@ -0,0 +1,116 @@
+package cn.frkovo.converter.bench;
+
+import cn.frkovo.converter.converter.ChartConverter;
+import cn.frkovo.converter.converter.RmcbWriter;
+import cn.frkovo.converter.converter.RmccWriter;
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.model.old.OldChart;
+import cn.frkovo.converter.model.old.OldMetadata;
+import cn.frkovo.converter.reader.RmcbReader;
+import cn.frkovo.converter.reader.RmccReader;
+import com.alibaba.fastjson2.JSONReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Checks that .rmcb round-trips to the same model as .rmcc and compares load times.
+ * Usage: RmcbBenchmark [convertedChartsDir] (without a directory a synthetic chart is used)
+ */
+public class RmcbBenchmark {
+    
+    private static final int ROUNDS = 5;
+    
+    public static void main(String[] args) throws IOException {
+        List<byte[]> charts = new ArrayList<>();
+        if (args.length > 0) {
+            try (Stream<Path> files = Files.walk(Paths.get(args[0]))) {
+                for (Path file : files.filter(p -> p.toString().endsWith(".rmcc")).sorted().toList()) {
+                    charts.add(Files.readAllBytes(file));
+                }
+            }
+        } else {
+            charts.add(syntheticRmcc(200_000, 20_000));
+        }
+        
+        RmccReader rmccReader = new RmccReader();
+        RmcbReader rmcbReader = new RmcbReader();
+        RmccWriter rmccWriter = new RmccWriter();
+        RmcbWriter rmcbWriter = new RmcbWriter();
+        
+        List<byte[]> binaries = new ArrayList<>();
+        long jsonBytes = 0;
+        long binaryBytes = 0;
+        int mismatches = 0;
+        for (byte[] json : charts) {
+            NewChart fromJson = rmccReader.read(JSONReader.of(json));
+            ByteArrayOutputStream binary = new ByteArrayOutputStream();
+            rmcbWriter.write(fromJson, binary);
+            binaries.add(binary.toByteArray());
+            
+            // decode(encode(x)) must serialise to exactly the same .rmcc as x
+            NewChart decoded = rmcbReader.read(ByteBuffer.wrap(binary.toByteArray()));
+            if (!Arrays.equals(toRmcc(rmccWriter, fromJson), toRmcc(rmccWriter, decoded))) {
+                mismatches++;
+            }
+            jsonBytes += json.length;
+            binaryBytes += binary.size();
+        }
+        System.out.printf("Round trip: %d chart(s), %d mismatch(es)%n", charts.size(), mismatches);
+        System.out.printf("Size: .rmcc %.1f MB, .rmcb %.1f MB%n", jsonBytes / 1048576.0, binaryBytes / 1048576.0);
+        
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (byte[] json : charts) {
+                rmccReader.read(JSONReader.of(json));
+            }
+            long jsonTime = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            for (byte[] binary : binaries) {
+                rmcbReader.read(ByteBuffer.wrap(binary));
+            }
+            long binaryTime = System.nanoTime() - start;
+            System.out.printf("Load: .rmcc %8.1f ms, .rmcb %8.1f ms%n", jsonTime / 1e6, binaryTime / 1e6);
+        }
+        
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+    
+    static byte[] toRmcc(RmccWriter writer, NewChart chart) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(chart, out);
+        return out.toByteArray();
+    }
+    
+    /**
+     * Convert a synthetic v1 chart and return its .rmcc bytes
+     */
+    static byte[] syntheticRmcc(int noteCount, int effectCount) throws IOException {
+        Path file = Files.createTempFile("rhythmc-bench", ".json");
+        try {
+            SyntheticChart.write(file, noteCount, effectCount, 42L);
+            NewChart chart = new ChartConverter().buildChart(10001, syntheticMetadata(), OldChart.fromFile(file.toFile()), "world");
+            return toRmcc(new RmccWriter(), chart);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    static OldMetadata syntheticMetadata() {
+        OldMetadata metadata = new OldMetadata();
+        metadata.setName("Synthetic");
+        metadata.setLength(1_000_000);
+        return metadata;
+    }
+}
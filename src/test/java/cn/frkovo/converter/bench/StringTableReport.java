@@ -0,0 +1,96 @@
+package cn.frkovo.converter.bench;
+
+import cn.frkovo.converter.converter.RmccWriter;
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.model.new_.NewEffect;
+import cn.frkovo.converter.reader.RmccReader;
+import com.alibaba.fastjson2.JSONReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * File size and effect string heap of .rmcc with and without a string table,
+ * over a directory of converted charts. Heap is estimated from the distinct
+ * String instances reachable from effect properties after loading (compressed
+ * oops: 24 byte String + 16 byte array header + 1 byte per Latin-1 char, 8-aligned).
+ * Usage: StringTableReport [convertedChartsDir]
+ */
+public class StringTableReport {
+    
+    public static void main(String[] args) throws IOException {
+        List<byte[]> charts = new ArrayList<>();
+        if (args.length > 0) {
+            try (Stream<Path> files = Files.walk(Paths.get(args[0]))) {
+                for (Path file : files.filter(p -> p.toString().endsWith(".rmcc")).sorted().toList()) {
+                    charts.add(Files.readAllBytes(file));
+                }
+            }
+        } else {
+            charts.add(RmcbBenchmark.syntheticRmcc(20_000, 50_000));
+        }
+        
+        RmccReader reader = new RmccReader();
+        RmccWriter plainWriter = new RmccWriter();
+        RmccWriter tableWriter = new RmccWriter(false, true);
+        
+        long plainBytes = 0, tableBytes = 0;
+        long plainHeap = 0, tableHeap = 0;
+        int mismatches = 0;
+        for (byte[] json : charts) {
+            NewChart chart = reader.read(JSONReader.of(json));
+            byte[] plain = RmcbBenchmark.toRmcc(plainWriter, chart);
+            byte[] table = RmcbBenchmark.toRmcc(tableWriter, chart);
+            NewChart plainChart = reader.read(JSONReader.of(plain));
+            NewChart tableChart = reader.read(JSONReader.of(table));
+            if (!plainChart.getEffects().equals(tableChart.getEffects())) {
+                mismatches++;
+            }
+            plainBytes += plain.length;
+            tableBytes += table.length;
+            plainHeap += stringHeap(plainChart.getEffects());
+            tableHeap += stringHeap(tableChart.getEffects());
+        }
+        
+        System.out.printf("Charts: %d, round trip mismatches: %d%n", charts.size(), mismatches);
+        System.out.printf("Size:        inline %.1f MB, string table %.1f MB (-%.1f%%)%n",
+                plainBytes / 1048576.0, tableBytes / 1048576.0, 100.0 * (plainBytes - tableBytes) / plainBytes);
+        System.out.printf("String heap: inline %.1f MB, string table %.1f MB (-%.1f%%)%n",
+                plainHeap / 1048576.0, tableHeap / 1048576.0, 100.0 * (plainHeap - tableHeap) / plainHeap);
+        
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+    
+    private static long stringHeap(List<NewEffect> effects) {
+        Set<String> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (NewEffect effect : effects) {
+            collect(effect.getProperties(), seen);
+        }
+        long bytes = 0;
+        for (String string : seen) {
+            bytes += 24 + ((16 + string.length() + 7) & ~7);
+        }
+        return bytes;
+    }
+    
+    private static void collect(Object value, Set<String> seen) {
+        if (value instanceof String string) {
+            seen.add(string);
+        } else if (value instanceof Map<?, ?> map) {
+            map.values().forEach(element -> collect(element, seen));
+        } else if (value instanceof List<?> list) {
+            list.forEach(element -> collect(element, seen));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package cn.frkovo.converter.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates v1 chart JSON files of arbitrary size for the benchmarks.
+ * Output is deterministic for a given seed.
+ */
+public class SyntheticChart {
+    
+    private static final String[] NOTE_TYPES = {"NOTE_CLICK", "NOTE_LEFT_CLICK", "NOTE_RIGHT_CLICK", "NOTE_LOOK", "NOTE_HOLD", "NOTE_DO_NOT_CLICK"};
+    
+    private SyntheticChart() {}
+    
+    /**
+     * Write a v1 chart with roughly {@code noteCount} notes and {@code effectCount} effects.
+     */
+    public static void write(Path file, int noteCount, int effectCount, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("{\"meta\":{\"charter\":\"Synthetic\",\"uuid\":\"00000000-0000-0000-0000-000000000000\","
+                    + "\"initial-arena\":\"AncientCity\",\"flow-speed\":1.0,\"offset\":0,\"level\":12.5,"
+                    + "\"comments\":[],\"coop-charters\":[]},\"frames\":[");
+            long tick = 20;
+            int written = 0;
+            boolean firstFrame = true;
+            while (written < noteCount) {
+                if (!firstFrame) {
+                    out.write(',');
+                }
+                firstFrame = false;
+                out.write("{\"judge-tick\":" + tick + ",\"notes\":[");
+                int notesInFrame = 1 + random.nextInt(3);
+                for (int i = 0; i < notesInFrame && written < noteCount; i++, written++) {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    String type = NOTE_TYPES[random.nextInt(NOTE_TYPES.length)];
+                    if (type.equals("NOTE_HOLD")) {
+                        out.write("{\"type\":\"NOTE_HOLD\",\"pos\":" + pos(random) + ",\"length\":" + (5 + random.nextInt(40)) + "}");
+                    } else {
+                        out.write("{\"type\":\"" + type + "\",\"pos\":[" + pos(random) + "," + pos(random) + "]}");
+                    }
+                }
+                out.write("]}");
+                tick += 1 + random.nextInt(4);
+            }
+            out.write("],\"effects\":[");
+            for (int i = 0; i < effectCount; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(effect(random, i, 20 + (long) random.nextInt((int) Math.max(1, tick))));
+            }
+            out.write("]}");
+        }
+    }
+    
+    /**
+     * Write {@code charts} song folders in the v1 input layout (metadata.yml and world.json),
+     * for reports that run over a corpus when no real one is at hand.
+     */
+    public static void writeCorpus(Path directory, int charts, int noteCount, int effectCount) throws IOException {
+        for (int i = 0; i < charts; i++) {
+            Path folder = Files.createDirectories(directory.resolve(String.format(Locale.ROOT, "synthetic-%02d", i)));
+            Files.writeString(folder.resolve("metadata.yml"), "name: Synthetic " + i + "\nlength: 1000000\n");
+            write(folder.resolve("world.json"), noteCount, effectCount, 42L + i);
+        }
+    }
+    
+    private static String pos(Random random) {
+        return String.format(Locale.ROOT, "%.2f", random.nextFloat() * 4 - 2);
+    }
+    
+    private static String effect(Random random, int index, long tick) {
+        String head = "{\"start-tick\":" + tick + ",";
+        return switch (index % 6) {
+            case 0 -> head + "\"effect-type\":\"HOLOGRAM\",\"id\":\"holo_" + (index / 6 % 64) + "\",\"hologram-loc\":[0.5,2.0,1.0],"
+                    + "\"hologram-contents\":[\"&bSection " + (index % 8) + "\",\"&7Keep going!\"]}";
+            case 1 -> head + "\"effect-type\":\"REMOVEHOLOGRAM\",\"id\":\"holo_" + (index / 6 % 64) + "\"}";
+            case 2 -> head + "\"effect-type\":\"TEXT\",\"id\":\"text_" + (index % 32) + "\",\"loc\":[1.0,2.5,0.0],\"content\":\"&eLyric line " + (index % 16) + "\"}";
+            case 3 -> head + "\"effect-type\":\"TRANSFORMATIONS\",\"id\":\"text_" + (index % 32) + "\",\"type\":\"TRANSFORMATION\",\"to\":[0.0,"
+                    + pos(random) + ",0.0],\"scale\":1.5,\"rotate\":15.0,\"duration\":20}";
+            case 4 -> head + "\"effect-type\":\"MESSAGE\",\"contents\":[\"&aWell played\"]}";
+            default -> head + "\"effect-type\":\"SPEED\",\"speed\":" + (1 + random.nextInt(3)) + ".0}";
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package cn.frkovo.converter.converter;
+
+import cn.frkovo.converter.bench.SyntheticChart;
+import cn.frkovo.converter.model.new_.NewChart;
+import cn.frkovo.converter.model.new_.NewEffect;
+import cn.frkovo.converter.model.new_.NewTrack;
+import cn.frkovo.converter.model.new_.NoteBuffer;
+import cn.frkovo.converter.model.old.OldChart;
+import cn.frkovo.converter.model.old.OldMetadata;
+import cn.frkovo.converter.reader.RmcbReader;
+import cn.frkovo.converter.reader.RmccReader;
+import com.alibaba.fastjson2.JSONReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Converts a synthetic v1 chart with ChartConverter, writes it as .rmcc and .rmcb
+ * and checks that RmcbReader gives back what RmccReader reads from the .rmcc.
+ */
+class RmcbRoundTripTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    void defaultOptions() throws IOException {
+        NewChart chart = convert(new ConversionOptions());
+        
+        assertRoundTrip(chart);
+        assertNull(roundTrip(chart).getEffectIndex());
+    }
+    
+    @Test
+    void compactHoldsBatchedEffectsAndEffectIndex() throws IOException {
+        ConversionOptions options = new ConversionOptions();
+        options.setCompactHolds(true);
+        options.setBatchEffects(true);
+        options.setEffectIndex(true);
+        options.setPairHolograms(true);
+        
+        assertRoundTrip(convert(options));
+    }
+    
+    @Test
+    void fractionalBeats() throws IOException {
+        // Converted beats are whole ticks; offset them so .rmcb has to store raw float64 beats
+        NewChart chart = convert(new ConversionOptions());
+        for (NewTrack track : chart.getTracks()) {
+            NoteBuffer notes = track.getNotes();
+            NoteBuffer shifted = new NoteBuffer(notes.size());
+            for (int i = 0; i < notes.size(); i++) {
+                shifted.add(notes.getType(i), notes.getBeat(i) + 0.375, notes.getPosX(i), notes.getPosY(i),
+                        notes.getHoldGroup(i), notes.getHoldLength(i));
+            }
+            track.setNotes(shifted);
+        }
+        for (NewEffect effect : chart.getEffects()) {
+            effect.setBeat(effect.getBeat() + 1.0 / 3);
+        }
+        
+        assertRoundTrip(chart);
+    }
+    
+    @Test
+    void keepsLongValues() throws IOException {
+        NewChart chart = convert(new ConversionOptions());
+        NewEffect hologram = chart.getEffects().stream()
+                .filter(effect -> "HOLOGRAM".equals(effect.getEventType()))
+                .findFirst().orElseThrow();
+        assertInstanceOf(Long.class, hologram.getProperties().get("duration"));
+        
+        NewChart decoded = roundTrip(chart);
+        NewEffect decodedHologram = decoded.getEffects().get(chart.getEffects().indexOf(hologram));
+        assertEquals(hologram.getProperties().get("duration"), decodedHologram.getProperties().get("duration"));
+    }
+    
+    /**
+     * decode(encode(x)) must equal x, and read back the same as the .rmcc of x
+     */
+    private static void assertRoundTrip(NewChart chart) throws IOException {
+        NewChart decoded = roundTrip(chart);
+        RmccReader rmccReader = new RmccReader();
+        NewChart fromRmcc = rmccReader.read(JSONReader.of(toRmcc(chart)));
+        // JSON keeps neither Float vs BigDecimal nor Integer vs Long, so the .rmcb result is
+        // compared with the .rmcc result after taking the same path through .rmcc
+        NewChart decodedViaRmcc = rmccReader.read(JSONReader.of(toRmcc(decoded)));
+        
+        assertEffectIndexEquals(chart.getEffectIndex(), decoded.getEffectIndex());
+        assertEffectIndexEquals(fromRmcc.getEffectIndex(), decodedViaRmcc.getEffectIndex());
+        // int[] values only compare by identity, the indexes are checked above
+        for (NewChart model : new NewChart[]{chart, decoded, fromRmcc, decodedViaRmcc}) {
+            model.setEffectIndex(null);
+        }
+        assertEquals(fromRmcc, decodedViaRmcc);
+        
+        // Both writers store an empty event list as its default event
+        for (NewTrack track : chart.getTracks()) {
+            track.fillDefaultEvents(chart.getLength());
+        }
+        assertEquals(chart, decoded);
+    }
+    
+    private static NewChart roundTrip(NewChart chart) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new RmcbWriter().write(chart, out);
+        return new RmcbReader().read(ByteBuffer.wrap(out.toByteArray()));
+    }
+    
+    private static byte[] toRmcc(NewChart chart) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new RmccWriter().write(chart, out);
+        return out.toByteArray();
+    }
+    
+    private static void assertEffectIndexEquals(Map<String, int[]> expected, Map<String, int[]> actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, int[]> entry : expected.entrySet()) {
+            assertArrayEquals(entry.getValue(), actual.get(entry.getKey()), entry.getKey());
+        }
+    }
+    
+    /**
+     * A small synthetic chart: clicks, holds, holograms, texts, transformations, messages and speed changes
+     */
+    private NewChart convert(ConversionOptions options) throws IOException {
+        Path file = tempDir.resolve("chart.json");
+        SyntheticChart.write(file, 2_000, 600, 42L);
+        OldMetadata metadata = new OldMetadata();
+        metadata.setName("Synthetic");
+        metadata.setLength(100_000);
+        return new ChartConverter(options).buildChart(10001, metadata, OldChart.fromFile(file.toFile()), "world");
+    }
+}